@@ -0,0 +1,187 @@
+package Models;
+
+import java.util.Arrays;
+
+/**
+ * Layout structure-of-arrays: cada atributo en un double[] contiguo.
+ * cos(θ) y sin(θ) se calculan una sola vez en setTheta y se reutilizan al acumular y al escribir.
+ * permute reordena todos los arreglos (p.ej. por curva de Morton) manteniendo ids externos de 64 bits.
+ */
+public class ArrayParticleStore implements ParticleStore {
+    private final double[] x, y, theta;
+    private final double[] cos, sin;
+    private final double[] c, s;
+    private final int[] count;
+    private final long[] ids;
+    private final int[] rows;       // rows[k]: posición de la k-ésima partícula en orden de id
+    private double[] scratch;       // buffers de permute, se reservan la primera vez
+    private long[] idScratch;
+    private int[] intScratch;
+
+    public ArrayParticleStore(int n) {
+        this.x = new double[n];
+        this.y = new double[n];
+        this.theta = new double[n];
+        this.cos = new double[n];
+        this.sin = new double[n];
+        this.c = new double[n];
+        this.s = new double[n];
+        this.count = new int[n];
+        this.ids = new long[n];
+        this.rows = new int[n];
+        Arrays.fill(cos, 1.0);
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+            rows[i] = i;
+        }
+    }
+
+    @Override
+    public int size() { return x.length; }
+
+    @Override
+    public double getX(int i) { return x[i]; }
+
+    @Override
+    public double getY(int i) { return y[i]; }
+
+    @Override
+    public long getId(int i) { return ids[i]; }
+
+    @Override
+    public int rowIndex(int k) { return rows[k]; }
+
+    // Asigna ids externos (p.ej. al retomar un checkpoint de un store reordenado); las filas quedan en orden de id
+    public void setIds(long[] newIds) {
+        System.arraycopy(newIds, 0, ids, 0, ids.length);
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(ids[a], ids[b]));
+        for (int k = 0; k < order.length; k++) rows[k] = order[k];
+    }
+
+    // La nueva posición j pasa a tener la partícula que estaba en order[j]
+    public void permute(int[] order) {
+        int n = x.length;
+        if (scratch == null) {
+            scratch = new double[n];
+            idScratch = new long[n];
+            intScratch = new int[n];
+        }
+        permute(x, order);
+        permute(y, order);
+        permute(theta, order);
+        permute(cos, order);
+        permute(sin, order);
+        permute(c, order);
+        permute(s, order);
+
+        for (int j = 0; j < n; j++) intScratch[j] = count[order[j]];
+        System.arraycopy(intScratch, 0, count, 0, n);
+        for (int j = 0; j < n; j++) idScratch[j] = ids[order[j]];
+        System.arraycopy(idScratch, 0, ids, 0, n);
+
+        // rows guarda posiciones viejas: se traducen con la inversa de order
+        for (int j = 0; j < n; j++) intScratch[order[j]] = j;
+        for (int k = 0; k < n; k++) rows[k] = intScratch[rows[k]];
+    }
+
+    private void permute(double[] a, int[] order) {
+        for (int j = 0; j < a.length; j++) scratch[j] = a[order[j]];
+        System.arraycopy(scratch, 0, a, 0, a.length);
+    }
+
+    @Override
+    public double getTheta(int i) {
+        if (Double.isNaN(theta[i])) theta[i] = Particle.angleOf(cos[i], sin[i]);
+        return theta[i];
+    }
+
+    @Override
+    public double cos(int i) { return cos[i]; }
+
+    @Override
+    public double sin(int i) { return sin[i]; }
+
+    @Override
+    public void setX(int i, double x) { this.x[i] = x; }
+
+    @Override
+    public void setY(int i, double y) { this.y[i] = y; }
+
+    @Override
+    public void setTheta(int i, double theta) {
+        this.theta[i] = theta;
+        this.cos[i] = Math.cos(theta);
+        this.sin[i] = Math.sin(theta);
+    }
+
+    @Override
+    public void setHeading(int i, double cos, double sin) {
+        this.theta[i] = Double.NaN;     // se recalcula en getTheta
+        this.cos[i] = cos;
+        this.sin[i] = sin;
+    }
+
+    // Copia posición y ángulo (con su cos/sin) de otro store del mismo tamaño
+    public void copyFrom(ParticleStore other) {
+        if (other instanceof ArrayParticleStore) {
+            ArrayParticleStore o = (ArrayParticleStore) other;
+            System.arraycopy(o.x, 0, x, 0, x.length);
+            System.arraycopy(o.y, 0, y, 0, y.length);
+            System.arraycopy(o.theta, 0, theta, 0, theta.length);
+            System.arraycopy(o.cos, 0, cos, 0, cos.length);
+            System.arraycopy(o.sin, 0, sin, 0, sin.length);
+            System.arraycopy(o.ids, 0, ids, 0, ids.length);
+            System.arraycopy(o.rows, 0, rows, 0, rows.length);
+            return;
+        }
+        for (int i = 0; i < x.length; i++) {
+            x[i] = other.getX(i);
+            y[i] = other.getY(i);
+            theta[i] = other.getTheta(i);
+            cos[i] = other.cos(i);
+            sin[i] = other.sin(i);
+            ids[i] = other.getId(i);
+            rows[i] = other.rowIndex(i);
+        }
+    }
+
+    @Override
+    public void registerCloseParticle(int i, int j) {
+        c[i] += cos[j];
+        s[i] += sin[j];
+        count[i] += 1;
+    }
+
+    @Override
+    public void registerCloseParticles(int i, int j) {
+        c[i] += cos[j];
+        s[i] += sin[j];
+        count[i] += 1;
+        c[j] += cos[i];
+        s[j] += sin[i];
+        count[j] += 1;
+    }
+
+    @Override
+    public double sumCos(int i) { return c[i]; }
+
+    @Override
+    public double sumSin(int i) { return s[i]; }
+
+    @Override
+    public double getMeanAngle(int i) {
+        return Math.atan2(s[i] / count[i], c[i] / count[i]);
+    }
+
+    @Override
+    public boolean hasCloseParticles(int i) { return count[i] > 0; }
+
+    @Override
+    public void resetMeanAngle(int i) {
+        c[i] = 0.0;
+        s[i] = 0.0;
+        count[i] = 0;
+    }
+}
@@ -0,0 +1,105 @@
+package Models;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Escribe los pasos en un hilo aparte. La simulación copia el estado en uno de los buffers libres
+ * y sigue avanzando; el hilo escritor los vuelca al TrajectoryWriter real y los devuelve.
+ * Si no hay buffers libres se espera (por defecto) o se descarta el paso (dropWhenFull).
+ */
+public class AsyncTrajectoryWriter implements TrajectoryWriter {
+    private static final Frame END = new Frame(0);
+
+    private final TrajectoryWriter delegate;
+    private final boolean dropWhenFull;
+    private final BlockingQueue<Frame> free;
+    private final BlockingQueue<Frame> ready;
+    private final Thread thread;
+    private volatile Throwable error;
+    private int dropped;
+
+    private static class Frame {
+        int t;
+        final ArrayParticleStore particles;
+
+        Frame(int n) { this.particles = new ArrayParticleStore(n); }
+    }
+
+    public AsyncTrajectoryWriter(TrajectoryWriter delegate, int n, int buffers, boolean dropWhenFull) {
+        this.delegate = delegate;
+        this.dropWhenFull = dropWhenFull;
+        this.free = new ArrayBlockingQueue<>(buffers);
+        this.ready = new ArrayBlockingQueue<>(buffers + 1);
+        for (int i = 0; i < buffers; i++) {
+            free.add(new Frame(n));
+        }
+
+        this.thread = new Thread(this::drain, "trajectory-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void drain() {
+        try {
+            for (Frame frame = ready.take(); frame != END; frame = ready.take()) {
+                try {
+                    if (error == null) delegate.writeStep(frame.t, frame.particles);
+                } catch (Throwable e) {
+                    // Cualquier falla (también RuntimeException) se reporta en writeStep/close
+                    error = e;
+                } finally {
+                    // El buffer vuelve siempre, si no la simulación queda esperando en free.take()
+                    free.put(frame);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void writeStep(int t, ParticleStore particles) throws IOException {
+        checkError();
+        try {
+            Frame frame = dropWhenFull ? free.poll() : free.take();
+            if (frame == null) {
+                dropped++;
+                return;
+            }
+            frame.t = t;
+            frame.particles.copyFrom(particles);
+            ready.put(frame);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando un buffer de escritura", e);
+        }
+    }
+
+    // Lo que ya volcó el hilo escritor
+    @Override
+    public long getBytesWritten() { return delegate.getBytesWritten(); }
+
+    // Cantidad de pasos descartados por no tener buffers libres
+    public int getDropped() { return dropped; }
+
+    private void checkError() throws IOException {
+        if (error != null) throw new IOException("Error en el hilo de escritura", error);
+    }
+
+    // Espera a que se escriban todos los pasos pendientes y cierra el destino
+    @Override
+    public void close() throws IOException {
+        try {
+            ready.put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando al hilo de escritura", e);
+        } finally {
+            delegate.close();
+        }
+        checkError();
+    }
+}
@@ -0,0 +1,149 @@
+package Models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Trayectoria completa de una simulación en un único archivo binario (little-endian).
+ *
+ * Cabecera de HEADER_SIZE bytes:
+ *   magic "VICSEKTR", int version, int N, int steps, int saveEvery, int Mx, int bytesPerValue (4 u 8),
+ *   double Lx, v, eta, r, long seed (NO_SEED si no tiene), int My, double Ly, relleno con ceros.
+ * La versión 1 (caja cuadrada) termina en seed: My = Mx y Ly = Lx.
+ * Cada frame: int paso, int reservado y luego N registros (x, y, vx, vy) en float32 o float64.
+ */
+public class BinaryTrajectoryWriter implements TrajectoryWriter {
+    public static final String FILE_NAME = "trajectory.bin";
+    public static final byte[] MAGIC = {'V', 'I', 'C', 'S', 'E', 'K', 'T', 'R'};
+    public static final int VERSION = 2;
+    public static final int HEADER_SIZE = 128;
+    public static final long NO_SEED = Long.MIN_VALUE;
+    private static final int BUFFER_SIZE = 1 << 20;     // los frames se escriben de a bloques: no hace falta uno de N
+
+    private final FileChannel channel;
+    private final ByteBuffer frame;
+    private final long frameBytes;
+    private final int recordBytes;
+    private final boolean doublePrecision;
+    private final double v;
+    private volatile long bytesWritten;
+
+    public BinaryTrajectoryWriter(Path simDir, Params p) throws IOException {
+        this(simDir, p, -1);
+    }
+
+    // Con resumeStep >= 0 continúa un archivo existente, descartando los frames posteriores a ese paso
+    public BinaryTrajectoryWriter(Path simDir, Params p, int resumeStep) throws IOException {
+        this.doublePrecision = p.doublePrecision;
+        this.v = p.v;
+
+        int bytesPerValue = doublePrecision ? 8 : 4;
+        this.recordBytes = 4 * bytesPerValue;
+        this.frameBytes = 8 + (long) p.N * recordBytes;
+        this.frame = ByteBuffer.allocateDirect((int) Math.min(frameBytes, BUFFER_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+
+        if (resumeStep >= 0) {
+            this.channel = FileChannel.open(simDir.resolve(FILE_NAME), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long frames = framesUpTo(channel, frameBytes, resumeStep);
+            long end = HEADER_SIZE + frames * frameBytes;
+            channel.truncate(end);
+
+            // La corrida puede haberse extendido: se actualiza la cantidad de pasos de la cabecera
+            ByteBuffer steps = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(p.steps);
+            steps.flip();
+            channel.write(steps, MAGIC.length + 8);
+            channel.position(end);
+            return;
+        }
+
+        this.channel = FileChannel.open(simDir.resolve(FILE_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(p.N);
+        header.putInt(p.steps);
+        header.putInt(p.saveEvery);
+        header.putInt(p.cellsX());
+        header.putInt(bytesPerValue);
+        header.putDouble(p.Lx);
+        header.putDouble(p.v);
+        header.putDouble(p.eta);
+        header.putDouble(p.r);
+        header.putLong(p.seed == null ? NO_SEED : p.seed);
+        header.putInt(p.cellsY());
+        header.putDouble(p.Ly);
+        header.position(HEADER_SIZE);
+        header.flip();
+        writeFully(header);
+    }
+
+    // Frames completos con paso <= resumeStep. Con dropWhenFull pueden faltar pasos, así que no alcanza con
+    // resumeStep / saveEvery + 1: se busca por el paso de cada frame, que es creciente en el archivo
+    private static long framesUpTo(FileChannel channel, long frameSize, int resumeStep) throws IOException {
+        long lo = 0, hi = (channel.size() - HEADER_SIZE) / frameSize;     // el primero con paso > resumeStep está en [lo, hi]
+        ByteBuffer step = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            step.clear();
+            while (step.hasRemaining()) {
+                if (channel.read(step, HEADER_SIZE + mid * frameSize + step.position()) < 0) throw new IOException("Trayectoria cortada");
+            }
+            if (step.getInt(0) <= resumeStep) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    public static int frameSize(int n, int bytesPerValue) {
+        return 8 + n * 4 * bytesPerValue;
+    }
+
+    @Override
+    public void writeStep(int t, ParticleStore particles) throws IOException {
+        frame.clear();
+        frame.putInt(t);
+        frame.putInt(0);
+        // Filas en orden de id externo aunque el store esté reordenado
+        for (int k = 0; k < particles.size(); k++) {
+            if (frame.remaining() < recordBytes) {
+                frame.flip();
+                writeFully(frame);
+                frame.clear();
+            }
+            int i = particles.rowIndex(k);
+            if (doublePrecision) {
+                frame.putDouble(particles.getX(i));
+                frame.putDouble(particles.getY(i));
+                frame.putDouble(particles.vx(i, v));
+                frame.putDouble(particles.vy(i, v));
+            } else {
+                frame.putFloat((float) particles.getX(i));
+                frame.putFloat((float) particles.getY(i));
+                frame.putFloat((float) particles.vx(i, v));
+                frame.putFloat((float) particles.vy(i, v));
+            }
+        }
+        frame.flip();
+        writeFully(frame);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        bytesWritten += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public long getBytesWritten() { return bytesWritten; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,66 @@
+package Models;
+
+/**
+ * Condición de borde de la caja [0, Lx] x [0, Ly]. Cada modo trae su propio move(), y Simulation elige una sola vez
+ * la grilla (periódica o no) y el DistanceKernel, así que los loops internos no preguntan por el modo.
+ *  - PERIODIC: toro; vecinos por imagen mínima y posiciones módulo L.
+ *  - REFLECTING: paredes; vecinos por distancia euclídea y la partícula que cruza una pared se refleja
+ *    (posición espejada y componente normal de la velocidad invertida).
+ *  - OPEN: vecinos por distancia euclídea, sin interacción a través del borde; la partícula que sale se
+ *    reinyecta por el lado opuesto con la misma dirección, así N y la densidad se mantienen.
+ */
+public enum Boundary {
+    PERIODIC {
+        @Override
+        void move(ParticleStore particles, int i, Params p) {
+            particles.setX(i, Simulation.wrapPos(particles.getX(i) + p.v * particles.cos(i), p.Lx));
+            particles.setY(i, Simulation.wrapPos(particles.getY(i) + p.v * particles.sin(i), p.Ly));
+        }
+    },
+    REFLECTING {
+        @Override
+        void move(ParticleStore particles, int i, Params p) {
+            double x = particles.getX(i) + p.v * particles.cos(i);
+            double y = particles.getY(i) + p.v * particles.sin(i);
+            boolean flipX = x < 0 || x > p.Lx;
+            boolean flipY = y < 0 || y > p.Ly;
+            // v < Lx, Ly: alcanza con una reflexión por eje
+            if (flipX) x = x < 0 ? -x : 2 * p.Lx - x;
+            if (flipY) y = y < 0 ? -y : 2 * p.Ly - y;
+            particles.setX(i, x);
+            particles.setY(i, y);
+            if (flipX || flipY) reflect(particles, i, p, flipX, flipY);
+        }
+    },
+    OPEN {
+        @Override
+        void move(ParticleStore particles, int i, Params p) {
+            PERIODIC.move(particles, i, p);     // misma reinyección; lo que cambia son los vecinos
+        }
+    };
+
+    // Avanza la partícula i un paso v en su dirección actual
+    abstract void move(ParticleStore particles, int i, Params p);
+
+    // Solo el toro interactúa a través del borde
+    public boolean periodic() {
+        return this == PERIODIC;
+    }
+
+    // Período de un eje de largo L para la imagen mínima min(|d|, period - |d|): con infinito queda la distancia euclídea
+    double period(double L) {
+        return periodic() ? L : Double.POSITIVE_INFINITY;
+    }
+
+    // Pared vertical: θ -> π - θ; pared horizontal: θ -> -θ
+    private static void reflect(ParticleStore particles, int i, Params p, boolean flipX, boolean flipY) {
+        if (p.unitHeading) {
+            particles.setHeading(i, flipX ? -particles.cos(i) : particles.cos(i), flipY ? -particles.sin(i) : particles.sin(i));
+        } else {
+            double theta = particles.getTheta(i);
+            if (flipX) theta = Math.PI - theta;
+            if (flipY) theta = -theta;
+            particles.setTheta(i, Simulation.wrapAngle(theta));
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package Models;
+
+import java.util.Arrays;
+
+/**
+ * Grilla de Mx x My celdas (Mx por fila, My filas) construida con counting sort; la celda (cx, cy) es cx + cy * Mx.
+ * Los ids de las partículas de la celda c quedan en sortedIdx[cellStart[c] .. cellStart[c] + cellCount[c]),
+ * en orden creciente de id, y sus posiciones en sortedX/sortedY en el mismo orden (bloques contiguos para el
+ * kernel de distancias). Todos los arreglos se reservan una vez y se reutilizan en cada paso; los de partículas
+ * crecen si build() recibe más que la capacidad inicial.
+ * Con una ventana de filas (SlabWorker) solo se guardan las celdas de esas filas globales: la celda de la fila
+ * rows[k] es cx + k * Mx y las vecinas fuera de la ventana quedan NOT_FOUND.
+ */
+public class CellGrid {
+    public static final int NOT_FOUND = -1;
+
+    private final int Mx, My;
+    private final double cellWidth, cellHeight;
+    private final boolean periodic;
+    private final int[] rows;       // filas globales de la ventana (todas si no hay ventana)
+    private final int[] slot;       // fila de la ventana de cada fila global, NOT_FOUND fuera; null sin ventana
+
+    final int[] cellStart;
+    final int[] cellCount;
+    int[] sortedIdx;
+    int[] cellOf;
+    int[] sortedPos;      // posición de cada partícula en sortedIdx
+    double[] sortedX;
+    double[] sortedY;
+    private final int[] fill;
+    private int[] mortonCells;      // celdas en orden de Morton, se calcula la primera vez
+    private int[] order;
+
+    // Celdas vecinas de cada celda: stencil[c * stencilWidth .. (c+1) * stencilWidth), NOT_FOUND si no existe
+    int[] stencil;
+    int stencilWidth;
+
+    public CellGrid(int Mx, int My, double Lx, double Ly, int n, boolean periodic) {
+        this(Mx, My, Lx, Ly, n, periodic, null);
+    }
+
+    // rows: filas globales que se guardan (null para todas); las partículas tienen que caer en alguna de ellas
+    public CellGrid(int Mx, int My, double Lx, double Ly, int n, boolean periodic, int[] rows) {
+        this.Mx = Mx;
+        this.My = My;
+        this.cellWidth = Lx / Mx;
+        this.cellHeight = Ly / My;
+        this.periodic = periodic;
+        if (rows == null) {
+            this.rows = new int[My];
+            for (int k = 0; k < My; k++) this.rows[k] = k;
+            this.slot = null;
+        } else {
+            this.rows = rows.clone();
+            this.slot = new int[My];
+            Arrays.fill(slot, NOT_FOUND);
+            for (int k = 0; k < rows.length; k++) slot[rows[k]] = k;
+        }
+        int cells = Mx * this.rows.length;
+        this.cellStart = new int[cells];
+        this.cellCount = new int[cells];
+        this.fill = new int[cells];
+        allocate(n);
+    }
+
+    private void allocate(int n) {
+        this.sortedIdx = new int[n];
+        this.cellOf = new int[n];
+        this.sortedPos = new int[n];
+        this.sortedX = new double[n];
+        this.sortedY = new double[n];
+    }
+
+    public int getMx() { return Mx; }
+
+    public int getMy() { return My; }
+
+    public int cellIndex(double x, double y) {
+        // x puede redondear a Lx (p.ej. wrapPos(-1e-18)), se acota a la última celda
+        int cellX = Math.min((int) (x / cellWidth), Mx - 1);
+        int cellY = Math.min((int) (y / cellHeight), My - 1);
+        return cellX + (slot == null ? cellY : slot[cellY]) * Mx;
+    }
+
+    // Fila de celdas de la coordenada y, con el mismo redondeo que cellIndex
+    public int rowOf(double y) {
+        return Math.min((int) (y / cellHeight), My - 1);
+    }
+
+    public void build(ParticleStore particles) {
+        Arrays.fill(cellCount, 0);
+        int n = particles.size();
+        // build() pisa todos los arreglos de partículas: no hace falta copiarlos al crecer
+        if (n > sortedIdx.length) allocate(Math.max(n, 2 * sortedIdx.length));
+        for (int i = 0; i < n; i++) {
+            int c = cellIndex(particles.getX(i), particles.getY(i));
+            cellOf[i] = c;
+            cellCount[c]++;
+        }
+
+        int start = 0;
+        for (int c = 0; c < cellCount.length; c++) {
+            cellStart[c] = start;
+            fill[c] = start;
+            start += cellCount[c];
+        }
+
+        // Recorrer en orden de id mantiene el orden estable dentro de cada celda
+        for (int i = 0; i < n; i++) {
+            int q = fill[cellOf[i]]++;
+            sortedIdx[q] = i;
+            sortedPos[i] = q;
+            sortedX[q] = particles.getX(i);
+            sortedY[q] = particles.getY(i);
+        }
+    }
+
+    /* -------------------- MORTON  -------------------- */
+
+    // Permutación que ordena las partículas por celda siguiendo la curva de Morton (Z) sobre la grilla,
+    // estable dentro de cada celda. Requiere build() con las posiciones actuales; el arreglo se reutiliza
+    public int[] mortonOrder() {
+        if (mortonCells == null) {
+            Integer[] cells = new Integer[cellCount.length];
+            for (int c = 0; c < cells.length; c++) cells[c] = c;
+            Arrays.sort(cells, (a, b) -> Long.compare(morton(a % Mx, rows[a / Mx]), morton(b % Mx, rows[b / Mx])));
+            mortonCells = new int[cells.length];
+            for (int c = 0; c < cells.length; c++) mortonCells[c] = cells[c];
+        }
+        if (order == null || order.length != sortedIdx.length) order = new int[sortedIdx.length];
+
+        int k = 0;
+        for (int c : mortonCells) {
+            System.arraycopy(sortedIdx, cellStart[c], order, k, cellCount[c]);
+            k += cellCount[c];
+        }
+        return order;
+    }
+
+    // Intercala los bits de cellX y cellY
+    static long morton(int cellX, int cellY) {
+        return spread(cellX) | (spread(cellY) << 1);
+    }
+
+    private static long spread(int v) {
+        long x = v & 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+
+    /* -------------------- STENCILS  -------------------- */
+
+    // Mitad superior derecha del bloque 3x3 (incluye la celda misma): cada par de celdas se visita una vez
+    public void computeTopCornerStencil() {
+        stencilWidth = 5;
+        stencil = new int[cellCount.length * stencilWidth];
+
+        for (int row = 0; row < rows.length; row++) {
+            int cellY = rows[row];
+            for (int cellX = 0; cellX < Mx; cellX++) {
+                int k = (cellX + row * Mx) * stencilWidth;
+
+                for (int dx = 0; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        if ( dx==0 && dy==-1 ) continue;
+                        stencil[k] = neighborCell(cellX + dx, cellY + dy, k);
+                        k++;
+                    }
+                }
+            }
+        }
+    }
+
+    // Bloque 3x3 completo (incluye la celda misma)
+    public void computeAllStencil() {
+        stencilWidth = 9;
+        stencil = new int[cellCount.length * stencilWidth];
+
+        for (int row = 0; row < rows.length; row++) {
+            int cellY = rows[row];
+            for (int cellX = 0; cellX < Mx; cellX++) {
+                int k = (cellX + row * Mx) * stencilWidth;
+
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        stencil[k] = neighborCell(cellX + dx, cellY + dy, k);
+                        k++;
+                    }
+                }
+            }
+        }
+    }
+
+    // k es la posición a llenar: si la celda ya figura en el stencil de la misma celda (una sola celda en
+    // un eje periódico, donde el bloque 3x3 se repite) se marca NOT_FOUND para no contar dos veces
+    private int neighborCell(int neighborCellX, int neighborCellY, int k) {
+        if (periodic) {
+            neighborCellX = (neighborCellX + Mx) % Mx;
+            neighborCellY = (neighborCellY + My) % My;
+        }
+
+        if (!periodic && (neighborCellX < 0 || neighborCellX >= Mx || neighborCellY < 0 || neighborCellY >= My)) {
+            return NOT_FOUND;
+        }
+
+        if (slot != null && slot[neighborCellY] == NOT_FOUND) return NOT_FOUND;
+
+        int cell = neighborCellX + (slot == null ? neighborCellY : slot[neighborCellY]) * Mx;
+        for (int j = k - k % stencilWidth; j < k; j++) {
+            if (stencil[j] == cell) return NOT_FOUND;
+        }
+        return cell;
+    }
+}
@@ -0,0 +1,164 @@
+package Models;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Estado completo de una simulación en un paso: parámetros, paso, modo, partículas, estado del rng
+ * y de la polarización acumulada (y del detector de estacionario con autoStop). Se guarda en <simDir>/checkpoint.bin.
+ */
+public class Checkpoint {
+    public static final String FILE_NAME = "checkpoint.bin";
+    private static final byte[] MAGIC = {'V', 'I', 'C', 'S', 'E', 'K', 'C', 'P'};
+    private static final int VERSION = 11;
+
+    final Params params;
+    final int step;
+    final String mode;
+    final Random rng;
+    final long counterSeed;
+    final double[] x, y, theta;
+    final long[] ids;       // ids externos en el orden del store (puede estar reordenado)
+    // Con unitHeading la dirección es (cos, sin): θ sale de atan2 y no alcanza para reconstruirla bit a bit.
+    // null sin unitHeading
+    final double[] cos, sin;
+    // Estado de Welford de PolarizationObservable
+    final long polarizationCount;
+    final double polarizationMean, polarizationM2;
+    final byte[] stationary;        // estado de StationaryDetector (writeState), null sin autoStop
+
+    Checkpoint(Params params, int step, String mode, Random rng, long counterSeed,
+               double[] x, double[] y, double[] theta, long[] ids, double[] cos, double[] sin, long polarizationCount, double polarizationMean, double polarizationM2,
+               byte[] stationary) {
+        this.params = params;
+        this.step = step;
+        this.mode = mode;
+        this.rng = rng;
+        this.counterSeed = counterSeed;
+        this.x = x;
+        this.y = y;
+        this.theta = theta;
+        this.ids = ids;
+        this.cos = cos;
+        this.sin = sin;
+        this.polarizationCount = polarizationCount;
+        this.polarizationMean = polarizationMean;
+        this.polarizationM2 = polarizationM2;
+        this.stationary = stationary;
+    }
+
+    // Escribe en un temporal y lo renombra, así un corte a mitad de escritura no pisa el checkpoint anterior
+    void write(Path simDir) throws IOException {
+        Path file = simDir.resolve(FILE_NAME);
+        Path tmp = simDir.resolve(FILE_NAME + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            params.write(out);
+            out.writeInt(step);
+            out.writeUTF(mode);
+            out.writeLong(counterSeed);
+
+            // java.util.Random es Serializable: guarda la semilla interna tal cual
+            ByteArrayOutputStream rngBytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(rngBytes)) {
+                oos.writeObject(rng);
+            }
+            out.writeInt(rngBytes.size());
+            rngBytes.writeTo(out);
+
+            out.writeInt(x.length);
+            for (int i = 0; i < x.length; i++) {
+                out.writeDouble(x[i]);
+                out.writeDouble(y[i]);
+                out.writeDouble(theta[i]);
+                out.writeLong(ids[i]);
+            }
+            if (params.unitHeading) {
+                for (int i = 0; i < x.length; i++) {
+                    out.writeDouble(cos[i]);
+                    out.writeDouble(sin[i]);
+                }
+            }
+
+            out.writeLong(polarizationCount);
+            out.writeDouble(polarizationMean);
+            out.writeDouble(polarizationM2);
+            if (params.autoStop) {
+                out.writeInt(stationary.length);
+                out.write(stationary);
+            }
+        }
+
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static Checkpoint read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("No es un checkpoint: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Versión de checkpoint no soportada: " + version);
+            }
+
+            Params params = Params.read(in);
+            int step = in.readInt();
+            String mode = in.readUTF();
+            long counterSeed = in.readLong();
+
+            byte[] rngBytes = new byte[in.readInt()];
+            in.readFully(rngBytes);
+            Random rng;
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(rngBytes))) {
+                rng = (Random) ois.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Estado del rng inválido en " + file, e);
+            }
+
+            int n = in.readInt();
+            double[] x = new double[n], y = new double[n], theta = new double[n];
+            long[] ids = new long[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = in.readDouble();
+                y[i] = in.readDouble();
+                theta[i] = in.readDouble();
+                ids[i] = in.readLong();
+            }
+            double[] cos = null, sin = null;
+            if (params.unitHeading) {
+                cos = new double[n];
+                sin = new double[n];
+                for (int i = 0; i < n; i++) {
+                    cos[i] = in.readDouble();
+                    sin[i] = in.readDouble();
+                }
+            }
+
+            long polarizationCount = in.readLong();
+            double polarizationMean = in.readDouble();
+            double polarizationM2 = in.readDouble();
+            byte[] stationary = null;
+            if (params.autoStop) {
+                stationary = new byte[in.readInt()];
+                in.readFully(stationary);
+            }
+
+            return new Checkpoint(params, step, mode, rng, counterSeed, x, y, theta, ids, cos, sin,
+                    polarizationCount, polarizationMean, polarizationM2, stationary);
+        }
+    }
+}
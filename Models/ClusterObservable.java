@@ -0,0 +1,105 @@
+package Models;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Clusters de partículas conectadas a distancia <= r (union-find sobre la grilla de celdas).
+ * Cada `every` pasos escribe en clusters.csv: t,clusters,largest_fraction,mean_size.
+ */
+public class ClusterObservable implements Observable {
+    public static final String FILE_NAME = "clusters.csv";
+
+    private final Path file;
+    private final int every;
+    private final double periodX, periodY, r2;  // períodos: Lx y Ly en el toro, infinito sin bordes periódicos
+    private final CellGrid grid;
+    private final int[] parent, size;
+    private BufferedWriter bw;
+
+    public ClusterObservable(Path simDir, Params p, int every) {
+        this.file = simDir.resolve(FILE_NAME);
+        this.every = every;
+        this.periodX = p.boundary.period(p.Lx);
+        this.periodY = p.boundary.period(p.Ly);
+        this.r2 = p.r * p.r;
+        this.grid = new CellGrid(p.cellsX(), p.cellsY(), p.Lx, p.Ly, p.N, p.boundary.periodic());
+        this.grid.computeAllStencil();
+        this.parent = new int[p.N];
+        this.size = new int[p.N];
+    }
+
+    @Override
+    public void observe(int t, ParticleStore particles) throws IOException {
+        if (t % every != 0) return;
+
+        int n = particles.size();
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+
+        grid.build(particles);
+        for (int p1 = 0; p1 < n; p1++) {
+            int cellIndex = grid.cellOf[p1];
+            for (int k = cellIndex * grid.stencilWidth; k < (cellIndex + 1) * grid.stencilWidth; k++) {
+                int neighborIndex = grid.stencil[k];
+                if (neighborIndex == CellGrid.NOT_FOUND) continue;
+
+                int end = grid.cellStart[neighborIndex] + grid.cellCount[neighborIndex];
+                for (int q = grid.cellStart[neighborIndex]; q < end; q++) {
+                    int p2 = grid.sortedIdx[q];
+                    if (p2 <= p1) continue;
+
+                    double dx = minImage(particles.getX(p2) - particles.getX(p1), periodX);
+                    double dy = minImage(particles.getY(p2) - particles.getY(p1), periodY);
+                    if (dx*dx + dy*dy <= r2) union(p1, p2);
+                }
+            }
+        }
+
+        int clusters = 0, largest = 0;
+        for (int i = 0; i < n; i++) {
+            if (parent[i] == i) {
+                clusters++;
+                largest = Math.max(largest, size[i]);
+            }
+        }
+
+        if (bw == null) {
+            bw = Files.newBufferedWriter(file);
+            bw.write("t,clusters,largest_fraction,mean_size\n");
+        }
+        bw.write(String.format(Locale.US, "%d,%d,%.6f,%.6f\n", t, clusters, (double) largest / n, (double) n / clusters));
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a == b) return;
+        if (size[a] < size[b]) { int tmp = a; a = b; b = tmp; }
+        parent[b] = a;
+        size[a] += size[b];
+    }
+
+    private static double minImage(double d, double period) {
+        d = Math.abs(d);
+        return Math.min(d, period - d);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (bw != null) bw.close();
+    }
+}
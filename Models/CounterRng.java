@@ -0,0 +1,40 @@
+package Models;
+
+/**
+ * Generador basado en contador: cada número es una función (SplitMix64) de (seed, paso, id de partícula, flujo).
+ * No tiene estado compartido, así que el resultado no depende del orden ni del hilo en que se pida.
+ */
+public final class CounterRng {
+    public static final int NOISE = 0;
+    public static final int NEIGHBOR = 1;
+    public static final int INIT_X = 2;
+    public static final int INIT_Y = 3;
+    public static final int INIT_THETA = 4;
+
+    private static final long GAMMA = 0x9e3779b97f4a7c15L;
+
+    private CounterRng() {}
+
+    // Finalizador de SplitMix64
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    public static long hash(long seed, long step, long id, int stream) {
+        long h = mix64(seed * GAMMA + stream);
+        h = mix64(h + step * GAMMA);
+        return mix64(h + id * GAMMA);
+    }
+
+    // Uniforme en [0, 1) con 53 bits de precisión
+    public static double uniform(long seed, long step, long id, int stream) {
+        return (hash(seed, step, id, stream) >>> 11) * 0x1.0p-53;
+    }
+
+    // Entero en [0, bound)
+    public static int nextInt(long seed, long step, long id, int stream, int bound) {
+        return (int) (((hash(seed, step, id, stream) >>> 32) * bound) >>> 32);
+    }
+}
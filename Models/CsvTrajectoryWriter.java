@@ -0,0 +1,57 @@
+package Models;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Formato original: un archivo steps/step_XXXX.csv por paso con columnas id,x,y,vx,vy.
+ */
+public class CsvTrajectoryWriter implements TrajectoryWriter {
+    private final Path stepsDir;
+    private final double v;
+    private volatile long bytesWritten;
+
+    public CsvTrajectoryWriter(Path simDir, Params p) throws IOException {
+        this.stepsDir = simDir.resolve("steps");
+        this.v = p.v;
+        Files.createDirectories(stepsDir);
+    }
+
+    @Override
+    public void writeStep(int t, ParticleStore particles) throws IOException {
+        Path file = stepsDir.resolve(fileName(t));
+
+        // Todo ASCII: un byte por caracter
+        long bytes = 0;
+        try (BufferedWriter bw = Files.newBufferedWriter(file)) {
+            String header = "id,x,y,vx,vy\n";
+            bw.write(header);
+            bytes += header.length();
+            for (int k = 0; k < particles.size(); k++) {
+                int i = particles.rowIndex(k);
+                String row = formatRow(particles.getId(i), particles.getX(i), particles.getY(i), particles.vx(i, v), particles.vy(i, v));
+                bw.write(row);
+                bytes += row.length();
+            }
+        }
+        bytesWritten += bytes;
+    }
+
+    @Override
+    public long getBytesWritten() { return bytesWritten; }
+
+    public static String fileName(int t) {
+        return String.format("step_%04d.csv", t);
+    }
+
+    public static String formatRow(long id, double x, double y, double vx, double vy) {
+        return String.format(Locale.US, "%d,%.6f,%.6f,%.6f,%.6f%n", id, x, y, vx, vy);
+    }
+
+    @Override
+    public void close() {
+    }
+}
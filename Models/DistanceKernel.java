@@ -0,0 +1,36 @@
+package Models;
+
+/**
+ * Prueba una partícula contra un bloque contiguo de candidatas xs/ys[from, to) en una caja de Lx x Ly.
+ * Escribe en hits, en orden creciente, los índices q con distancia² <= r2 y devuelve cuántos son.
+ * En la caja periódica la imagen mínima se toma como min(|d|, Lx - |d|) (y con Ly en y), sin ramas, así que todas las
+ * implementaciones marcan exactamente los mismos pares que Simulation.minImage. Sin bordes periódicos
+ * (Boundary.REFLECTING, Boundary.OPEN) las variantes Euclidean usan la distancia directa e ignoran Lx y Ly.
+ */
+public interface DistanceKernel {
+
+    int findHits(double x, double y, double[] xs, double[] ys, int from, int to, double Lx, double Ly, double r2, int[] hits);
+
+    static DistanceKernel scalar() {
+        return new ScalarDistanceKernel();
+    }
+
+    static DistanceKernel scalar(Boundary boundary) {
+        return boundary.periodic() ? scalar() : new ScalarDistanceKernel.Euclidean();
+    }
+
+    // Kernel SIMD si la JVM tiene el módulo jdk.incubator.vector (--add-modules jdk.incubator.vector),
+    // si no el escalar. Se carga por reflexión para que el resto no dependa del módulo
+    static DistanceKernel best() {
+        return best(Boundary.PERIODIC);
+    }
+
+    static DistanceKernel best(Boundary boundary) {
+        String name = boundary.periodic() ? "Models.VectorDistanceKernel" : "Models.VectorDistanceKernel$Euclidean";
+        try {
+            return (DistanceKernel) Class.forName(name).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return scalar(boundary);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package Models;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CIM repartido en K procesos locales (ver SlabWorker): cada uno se queda con una franja de filas de la grilla.
+ * Este proceso es el coordinador: lanza las JVMs, reenvía en cada paso las filas de borde (halo) y las
+ * partículas que cambian de franja, suma v_a a partir de las sumas parciales y escribe las salidas en un
+ * sims/sim_XXXX como el de Simulation.
+ * Necesita counterRng con semilla: con eso las trayectorias son las mismas que las de Simulation.runCIM para
+ * cualquier K (v_a puede diferir en el último bit porque se suma por franjas).
+ * Ningún proceso guarda las N partículas: los workers solo su franja y el coordinador escribe cada paso guardado
+ * mezclando por id lo que llega de los sockets (SlabFrameMerge). Por eso no hay writeBuffers, que copia cada
+ * paso entero en memoria.
+ */
+public class DistributedSimulation {
+    private static final int ACCEPT_TIMEOUT_MS = 60_000;
+
+    private final Params p;
+    private final int workers;
+    private final int My;     // filas de celdas
+    private final Path simDir;
+    private PolarizationObservable polarization;
+    private List<String> workerOptions = List.of();      // opciones de la JVM de cada SlabWorker (p.ej. -Xmx)
+    private SlabFrameMerge frame;       // paso guardado, leído de los sockets a medida que se escribe
+
+    public DistributedSimulation(Params p, int workers) throws IOException {
+        if (!p.counterRng || p.seed == null) {
+            throw new IllegalArgumentException("La corrida distribuida necesita counterRng y una semilla fija");
+        }
+        if (p.reorderEvery > 0 || p.verletSkin > 0 || p.checkpointEvery > 0 || p.autoStop || p.atomicOutput || p.writeBuffers > 0) {
+            throw new IllegalArgumentException("La corrida distribuida no soporta reorderEvery, verletSkin, checkpoints, autoStop, atomicOutput ni writeBuffers");
+        }
+        // Las franjas se pasan filas fantasma de forma cíclica: solo el toro
+        if (!p.boundary.periodic()) {
+            throw new IllegalArgumentException("La corrida distribuida solo soporta bordes periódicos: " + p.boundary);
+        }
+        this.My = p.cellsY();
+        if (workers < 1 || workers > My) {
+            throw new IllegalArgumentException("Se necesitan entre 1 y My = " + My + " procesos (una fila de celdas cada uno): " + workers);
+        }
+        this.p = p;
+        this.workers = workers;
+
+        long ts = System.currentTimeMillis() / 1000L;
+        this.simDir = Simulation.createSimDir(Paths.get(p.outDir + "/sims"), "sim_" + ts + "_" + new Random(p.seed).nextInt(p.N), false);
+        if (p.writePolarization) polarization = new PolarizationObservable(simDir);
+    }
+
+    public void setWorkerOptions(String... options) { this.workerOptions = List.of(options); }
+
+    public void runCIM() throws IOException {
+        List<Process> processes = new ArrayList<>();
+        Connection[] connections = new Connection[workers];
+        TrajectoryWriter writer = null;
+        Throwable failure = null;
+
+        try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(ACCEPT_TIMEOUT_MS);
+            for (int w = 0; w < workers; w++) {
+                processes.add(launch(server.getLocalPort(), w, workers, workerOptions));
+            }
+            for (int k = 0; k < workers; k++) {
+                Connection c = new Connection(server.accept());
+                connections[c.in.readInt()] = c;
+            }
+            for (Connection c : connections) {
+                p.write(c.out);
+                c.out.flush();
+            }
+
+            writer = p.writeTrajectory ? Simulation.openWriter(simDir, p, -1) : null;
+            coordinate(connections, writer);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (writer != null) writer.close();
+            if (polarization != null) polarization.close();
+            for (Connection c : connections) {
+                if (c != null) c.socket.close();
+            }
+            try {
+                waitFor(processes);
+            } catch (IOException e) {
+                // Si el coordinador falló, los workers caen al cerrarse los sockets: se reporta el error original
+                if (failure == null) throw e;
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /* -------------------- PROCESOS  -------------------- */
+
+    private static class Connection {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+    }
+
+    // Misma JVM y mismas clases que este proceso; el kernel SIMD solo si este proceso también lo tiene
+    private static Process launch(int port, int w, int workers, List<String> options) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(options);
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            command.add("--add-modules");
+            command.add("jdk.incubator.vector");
+        }
+        command.add("-cp");
+        command.add(classPath());
+        command.add(SlabWorker.class.getName());
+        command.add(InetAddress.getLoopbackAddress().getHostAddress());
+        command.add(Integer.toString(port));
+        command.add(Integer.toString(w));
+        command.add(Integer.toString(workers));
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    private static String classPath() throws IOException {
+        try {
+            return Paths.get(SlabWorker.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IOException("No se encontró el classpath de SlabWorker", e);
+        }
+    }
+
+    private static void waitFor(List<Process> processes) throws IOException {
+        try {
+            for (Process process : processes) {
+                if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                    throw new IOException("Un SlabWorker no terminó");
+                }
+                if (process.exitValue() != 0) {
+                    throw new IOException("Un SlabWorker terminó con código " + process.exitValue());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (Process process : processes) process.destroyForcibly();
+            throw new InterruptedIOException("Interrumpido esperando a los SlabWorker");
+        }
+    }
+
+    /* -------------------- PASOS  -------------------- */
+
+    private void coordinate(Connection[] connections, TrajectoryWriter writer) throws IOException {
+        SlabParticleStore[] firstRows = new SlabParticleStore[workers], lastRows = new SlabParticleStore[workers];
+        SlabParticleStore[] incoming = new SlabParticleStore[workers];
+        for (int w = 0; w < workers; w++) {
+            firstRows[w] = new SlabParticleStore(16);
+            lastRows[w] = new SlabParticleStore(16);
+            incoming[w] = new SlabParticleStore(16);
+        }
+
+        if (writer != null) {
+            DataInputStream[] in = new DataInputStream[workers];
+            for (int w = 0; w < workers; w++) in[w] = connections[w].in;
+            frame = new SlabFrameMerge(in);
+        }
+
+        collect(connections, 0, writer);
+        for (int t = 1; t <= p.steps; t++) {
+            // Halo: cada franja manda su primera y su última fila y recibe las vecinas
+            for (int w = 0; w < workers; w++) {
+                firstRows[w].clear();
+                firstRows[w].read(connections[w].in);
+                lastRows[w].clear();
+                lastRows[w].read(connections[w].in);
+            }
+            for (int w = 0; w < workers; w++) {
+                for (int row : SlabWorker.ghostRows(w, workers, My)) {
+                    int owner = SlabWorker.owner(row, workers, My);
+                    (row == SlabWorker.firstRow(owner, workers, My) ? firstRows[owner] : lastRows[owner]).write(connections[w].out);
+                }
+                connections[w].out.flush();
+            }
+
+            // Migración: las que salieron de cada franja, ya separadas por destino
+            for (SlabParticleStore in : incoming) in.clear();
+            for (int w = 0; w < workers; w++) {
+                for (int dest = 0; dest < workers; dest++) incoming[dest].read(connections[w].in);
+            }
+            collect(connections, t, writer);
+            for (int w = 0; w < workers; w++) {
+                incoming[w].write(connections[w].out);
+                connections[w].out.flush();
+            }
+        }
+    }
+
+    // Sumas de cos/sin de cada franja para v_a y, si el paso se guarda, el estado de todas las partículas: el
+    // writer lo lee de los sockets mientras escribe, sin pasar por un cuadro de N
+    private void collect(Connection[] connections, int t, TrajectoryWriter writer) throws IOException {
+        double c = 0.0, s = 0.0;
+        boolean save = writer != null && t % p.saveEvery == 0;
+        if (save) frame.clear();
+
+        for (int w = 0; w < workers; w++) {
+            c += connections[w].in.readDouble();
+            s += connections[w].in.readDouble();
+            if (save) frame.open(w);
+        }
+
+        if (save) {
+            try {
+                writer.writeStep(t, frame);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            frame.finish();
+        }
+        if (polarization != null) polarization.record(t, Math.sqrt(c * c + s * s) / p.N);
+    }
+
+    // null si p.writePolarization es false
+    public PolarizationObservable getPolarization() { return polarization; }
+
+    public Path getSimDir() { return simDir; }
+}
@@ -0,0 +1,86 @@
+package Models;
+
+import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dibuja un PNG cada `every` pasos directo del store en memoria, sin escribir la trayectoria: dir/frame_XXXX.png.
+ * La simulación solo copia posiciones y velocidades; el dibujo y la escritura van a un pool de `threads` hilos,
+ * con a lo sumo 2 * threads frames pendientes.
+ */
+public class FrameRenderObservable implements Observable {
+    private final Path dir;
+    private final TrajectoryRenderer renderer;
+    private final double v;
+    private final int every;
+    private final ExecutorService pool;
+    private final Semaphore inFlight;
+    private volatile Throwable error;
+
+    public FrameRenderObservable(Path dir, Params p, int every, boolean colorByAngle, int threads) throws IOException {
+        int nThreads = threads <= 0 ? Runtime.getRuntime().availableProcessors() : threads;
+        this.dir = dir;
+        this.renderer = new TrajectoryRenderer(p.Lx, p.Ly, colorByAngle);
+        this.v = p.v;
+        this.every = every;
+        this.pool = Executors.newFixedThreadPool(nThreads);
+        this.inFlight = new Semaphore(2 * nThreads);
+        Files.createDirectories(dir);
+    }
+
+    @Override
+    public void observe(int t, ParticleStore particles) throws IOException {
+        checkError();
+        if (t % every != 0) return;
+
+        int n = particles.size();
+        double[] x = new double[n], y = new double[n], vx = new double[n], vy = new double[n];
+        for (int k = 0; k < n; k++) {
+            int i = particles.rowIndex(k);
+            x[k] = particles.getX(i);
+            y[k] = particles.getY(i);
+            vx[k] = particles.vx(i, v);
+            vy[k] = particles.vy(i, v);
+        }
+
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando un frame", e);
+        }
+        pool.execute(() -> {
+            try {
+                ImageIO.write(renderer.render(t, x, y, vx, vy, n), "png", dir.resolve(String.format("frame_%04d.png", t)).toFile());
+            } catch (Throwable e) {
+                // También RuntimeException: si no, el executor se la traga y el frame falta sin aviso
+                error = e;
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void checkError() throws IOException {
+        if (error != null) throw new IOException("Error dibujando un frame", error);
+    }
+
+    // Espera los frames pendientes
+    @Override
+    public void close() throws IOException {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando los frames", e);
+        }
+        checkError();
+    }
+}
@@ -0,0 +1,80 @@
+package Models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Layout original: una lista de objetos Particle en el heap.
+ * Se mantiene como referencia para comparar contra ArrayParticleStore.
+ */
+public class ObjectParticleStore implements ParticleStore {
+    private final List<Particle> particles;
+
+    public ObjectParticleStore(int n) {
+        this.particles = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            particles.add(new Particle(0.0, 0.0, 0.0, i));
+        }
+    }
+
+    @Override
+    public int size() { return particles.size(); }
+
+    @Override
+    public double getX(int i) { return particles.get(i).getX(); }
+
+    @Override
+    public double getY(int i) { return particles.get(i).getY(); }
+
+    @Override
+    public double getTheta(int i) { return particles.get(i).getTheta(); }
+
+    @Override
+    public double cos(int i) { return particles.get(i).cos(); }
+
+    @Override
+    public double sin(int i) { return particles.get(i).sin(); }
+
+    @Override
+    public void setX(int i, double x) { particles.get(i).setX(x); }
+
+    @Override
+    public void setY(int i, double y) { particles.get(i).setY(y); }
+
+    @Override
+    public void setTheta(int i, double theta) { particles.get(i).setTheta(theta); }
+
+    @Override
+    public void setHeading(int i, double cos, double sin) { particles.get(i).setHeading(cos, sin); }
+
+    @Override
+    public void registerCloseParticle(int i, int j) {
+        particles.get(i).registerCloseParticle(particles.get(j));
+    }
+
+    @Override
+    public void registerCloseParticles(int i, int j) {
+        Particle.registerCloseParticles(particles.get(i), particles.get(j));
+    }
+
+    @Override
+    public double sumCos(int i) { return particles.get(i).getSumCos(); }
+
+    @Override
+    public double sumSin(int i) { return particles.get(i).getSumSin(); }
+
+    @Override
+    public double getMeanAngle(int i) { return particles.get(i).getMeanAngle(); }
+
+    @Override
+    public boolean hasCloseParticles(int i) { return particles.get(i).hasCloseParticles(); }
+
+    @Override
+    public void resetMeanAngle(int i) { particles.get(i).resetMeanAngle(); }
+
+    @Override
+    public double vx(int i, double v) { return particles.get(i).vx(v); }
+
+    @Override
+    public double vy(int i, double v) { return particles.get(i).vy(v); }
+}
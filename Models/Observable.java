@@ -0,0 +1,18 @@
+package Models;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Medición que se calcula durante la simulación, en cada paso (incluido el paso 0).
+ */
+public interface Observable extends Closeable {
+
+    void observe(int t, ParticleStore particles) throws IOException;
+
+    // true para cortar la corrida antes de p.steps
+    default boolean isDone() { return false; }
+
+    @Override
+    default void close() throws IOException {}
+}
@@ -1,6 +1,8 @@
 package Models;
 
 import java.io.BufferedWriter;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -8,19 +10,42 @@ import java.util.Locale;
 
 public class Params {
     int N = 500;                // Número de partículas
-    double L = 10.0;            // Tamaño del espacio cuadrado
+    double Lx = 10.0;           // Ancho de la caja
+    double Ly = 10.0;           // Alto de la caja
     double v = 0.03;             // Velocidad constante
     double eta = 0.1;           // Intensidad del ruido angular (η)
     double r = 1;             // Radio de interacción
     int steps = 1000;            // Número total de pasos de la simulación
     int saveEvery = 1;          // Cada cuántos pasos se guarda el estado
     String outDir = "outputs";  // Directorio de salida
-    int M = 5;                 // cantidad de celdas por fila/columna
+    int Mx = 0;                // cantidad de celdas por fila (0 elige la mayor válida, ver cellsX)
+    int My = 0;                // cantidad de celdas por columna (0 elige la mayor válida, ver cellsY)
     Integer seed = null;
+    int threads = 1;            // hilos del motor CIM (<= 0 usa todos los núcleos)
+    boolean counterRng = false; // ruido por (seed, paso, partícula): reproducible con cualquier cantidad de hilos
+    boolean binaryOutput = false;    // trajectory.bin en lugar de un step_XXXX.csv por paso
+    boolean doublePrecision = false; // trajectory.bin en float64 en lugar de float32
+    int writeBuffers = 0;            // buffers para escribir en un hilo aparte (0 escribe en el mismo hilo)
+    boolean dropWhenFull = false;    // sin buffers libres: descartar el paso en lugar de esperar
+    boolean writeTrajectory = true;  // false: solo se guardan los observables (barridos de parámetros)
+    boolean writePolarization = true; // polarization.csv con v_a(t) en cada paso
+    boolean atomicOutput = false;    // escribir en sims/.sim_XXXX.tmp y renombrar al terminar
+    int checkpointEvery = 0;         // cada cuántos pasos se guarda checkpoint.bin (0 no guarda)
+    boolean autoStop = false;        // cortar al juntar stationarySamples muestras independientes en el estacionario
+    int stationaryWindow = 100;      // pasos por ventana para detectar el fin del transitorio
+    double stationaryTolerance = 0.01; // diferencia máxima de v_a entre ventanas consecutivas
+    int stationarySamples = 50;      // muestras independientes de v_a a juntar
+    double verletSkin = 0;           // > 0: CIM con listas de Verlet de radio r + skin (0 reconstruye la grilla cada paso)
+    boolean vectorDistance = true;   // kernel SIMD de distancias si la JVM tiene jdk.incubator.vector
+    boolean unitHeading = false;     // dirección como vector unitario: sin atan2 ni wrapAngle en la actualización
+    int reorderEvery = 0;            // cada cuántos pasos se reordena el store por curva de Morton (0 no reordena)
+    int logEverySeconds = 0;         // cada cuántos segundos se imprime una línea de SimulationMetrics (0 no imprime)
+    Boundary boundary = Boundary.PERIODIC; // condición de borde de la caja (ver Boundary)
+    int topologicalK = 7;            // vecinos más cercanos con los que se alinea cada partícula en runTopological
 
     public Params(Double eta, Double v, Double L, Integer N, String outDir) {
         if(N != null) this.N = N;
-        if(L != null) this.L = L;
+        if(L != null) { this.Lx = L; this.Ly = L; }
         if(v != null) this.v = v;
         if(eta != null) this.eta = eta;
         if(outDir != null) this.outDir = outDir;
@@ -28,25 +53,231 @@ public class Params {
 
     public Params(Double eta, Double v, Double L, Integer N, String outDir,Integer steps) {
         if(N != null) this.N = N;
-        if(L != null) this.L = L;
+        if(L != null) { this.Lx = L; this.Ly = L; }
         if(v != null) this.v = v;
         if(eta != null) this.eta = eta;
         if(outDir != null) this.outDir = outDir;
         if (steps != null) this.steps = steps;
     }
 
+    public Params(Params other) {
+        this.N = other.N;
+        this.Lx = other.Lx;
+        this.Ly = other.Ly;
+        this.v = other.v;
+        this.eta = other.eta;
+        this.r = other.r;
+        this.steps = other.steps;
+        this.saveEvery = other.saveEvery;
+        this.outDir = other.outDir;
+        this.Mx = other.Mx;
+        this.My = other.My;
+        this.seed = other.seed;
+        this.threads = other.threads;
+        this.counterRng = other.counterRng;
+        this.binaryOutput = other.binaryOutput;
+        this.doublePrecision = other.doublePrecision;
+        this.writeBuffers = other.writeBuffers;
+        this.dropWhenFull = other.dropWhenFull;
+        this.writeTrajectory = other.writeTrajectory;
+        this.writePolarization = other.writePolarization;
+        this.atomicOutput = other.atomicOutput;
+        this.checkpointEvery = other.checkpointEvery;
+        this.autoStop = other.autoStop;
+        this.stationaryWindow = other.stationaryWindow;
+        this.stationaryTolerance = other.stationaryTolerance;
+        this.stationarySamples = other.stationarySamples;
+        this.verletSkin = other.verletSkin;
+        this.vectorDistance = other.vectorDistance;
+        this.unitHeading = other.unitHeading;
+        this.reorderEvery = other.reorderEvery;
+        this.logEverySeconds = other.logEverySeconds;
+        this.boundary = other.boundary;
+        this.topologicalK = other.topologicalK;
+    }
+
     public void setSteps(int steps) {
         this.steps = steps;
     }
 
+    public void setSaveEvery(int saveEvery) {
+        this.saveEvery = saveEvery;
+    }
+
+    public void setR(double r) { this.r = r; }
+
+    public void setM(int M) { this.Mx = M; this.My = M; }
+
+    public void setM(int Mx, int My) { this.Mx = Mx; this.My = My; }
+
+    // Caja rectangular Lx x Ly (los constructores la dejan cuadrada de lado L)
+    public void setBox(double Lx, double Ly) { this.Lx = Lx; this.Ly = Ly; }
+
     public void setSeed(int seed) { this.seed = seed; }
 
+    public void setThreads(int threads) { this.threads = threads; }
+
+    public void setCounterRng(boolean counterRng) { this.counterRng = counterRng; }
+
+    public void setBinaryOutput(boolean binaryOutput) { this.binaryOutput = binaryOutput; }
+
+    public void setDoublePrecision(boolean doublePrecision) { this.doublePrecision = doublePrecision; }
+
+    public void setWriteBuffers(int writeBuffers) { this.writeBuffers = writeBuffers; }
+
+    public void setDropWhenFull(boolean dropWhenFull) { this.dropWhenFull = dropWhenFull; }
+
+    public void setWriteTrajectory(boolean writeTrajectory) { this.writeTrajectory = writeTrajectory; }
+
+    public void setWritePolarization(boolean writePolarization) { this.writePolarization = writePolarization; }
+
+    public void setAtomicOutput(boolean atomicOutput) { this.atomicOutput = atomicOutput; }
+
+    public void setCheckpointEvery(int checkpointEvery) { this.checkpointEvery = checkpointEvery; }
+
+    public void setAutoStop(boolean autoStop) { this.autoStop = autoStop; }
+
+    public void setStationaryWindow(int stationaryWindow) { this.stationaryWindow = stationaryWindow; }
+
+    public void setStationaryTolerance(double stationaryTolerance) { this.stationaryTolerance = stationaryTolerance; }
+
+    public void setStationarySamples(int stationarySamples) { this.stationarySamples = stationarySamples; }
+
+    public void setVerletSkin(double verletSkin) { this.verletSkin = verletSkin; }
+
+    public void setVectorDistance(boolean vectorDistance) { this.vectorDistance = vectorDistance; }
+
+    public void setUnitHeading(boolean unitHeading) { this.unitHeading = unitHeading; }
+
+    public void setReorderEvery(int reorderEvery) { this.reorderEvery = reorderEvery; }
+
+    public void setLogEverySeconds(int logEverySeconds) { this.logEverySeconds = logEverySeconds; }
+
+    public void setBoundary(Boundary boundary) { this.boundary = boundary; }
+
+    public void setTopologicalK(int topologicalK) { this.topologicalK = topologicalK; }
+
+    // Celdas por fila (x) y por columna (y) de la grilla: Mx/My si se fijaron, si no la mayor con celdas de
+    // lado >= r en ese eje (celdas más chicas que r perderían vecinos). Con bordes periódicos 2 celdas en un eje
+    // repiten vecinas en el stencil y un par se visitaría dos veces, así que en ese caso se usa una sola
+    public int cellsX() { return cells(Mx, Lx, "x"); }
+
+    public int cellsY() { return cells(My, Ly, "y"); }
+
+    private int cells(int fixed, double side, String axis) {
+        if (r <= 0 || side <= 0) throw new IllegalArgumentException("L" + axis + " y r deben ser positivos: L" + axis + " = " + side + ", r = " + r);
+
+        int cells = fixed > 0 ? fixed : maxCellsPerSide(side, r, boundary.periodic());
+
+        if (side / cells < r) {
+            throw new IllegalArgumentException("M" + axis + " = " + cells + " deja celdas de lado " + side / cells + " < r = " + r + ": se perderían vecinos");
+        }
+        if (cells == 2 && boundary.periodic()) {
+            throw new IllegalArgumentException("M" + axis + " = 2 con bordes periódicos repite celdas vecinas; usar 1 o >= 3");
+        }
+        return cells;
+    }
+
+    // Mayor cantidad de celdas en un eje de largo L con celdas de lado >= radius (salteando 2 si es periódico, ver cells)
+    static int maxCellsPerSide(double L, double radius, boolean periodic) {
+        int cells = Math.max(1, (int) Math.floor(L / radius));
+        while (cells > 1 && L / cells < radius) cells--;     // L / radius puede redondear hacia arriba
+        return cells == 2 && periodic ? 1 : cells;
+    }
+
     public Integer getSeed() { return this.seed; }
 
+    public String getOutDir() { return outDir; }
+
+    public int getSteps() { return steps; }
+
+    // Serialización binaria para los checkpoints
+    void write(DataOutput out) throws IOException {
+        out.writeInt(N);
+        out.writeDouble(Lx);
+        out.writeDouble(Ly);
+        out.writeDouble(v);
+        out.writeDouble(eta);
+        out.writeDouble(r);
+        out.writeInt(steps);
+        out.writeInt(saveEvery);
+        out.writeUTF(outDir);
+        out.writeInt(Mx);
+        out.writeInt(My);
+        out.writeBoolean(seed != null);
+        out.writeInt(seed == null ? 0 : seed);
+        out.writeInt(threads);
+        out.writeBoolean(counterRng);
+        out.writeBoolean(binaryOutput);
+        out.writeBoolean(doublePrecision);
+        out.writeInt(writeBuffers);
+        out.writeBoolean(dropWhenFull);
+        out.writeBoolean(writeTrajectory);
+        out.writeBoolean(writePolarization);
+        out.writeBoolean(atomicOutput);
+        out.writeInt(checkpointEvery);
+        out.writeBoolean(autoStop);
+        out.writeInt(stationaryWindow);
+        out.writeDouble(stationaryTolerance);
+        out.writeInt(stationarySamples);
+        out.writeDouble(verletSkin);
+        out.writeBoolean(vectorDistance);
+        out.writeBoolean(unitHeading);
+        out.writeInt(reorderEvery);
+        out.writeInt(logEverySeconds);
+        out.writeUTF(boundary.name());
+        out.writeInt(topologicalK);
+    }
+
+    static Params read(DataInput in) throws IOException {
+        Params p = new Params(null, null, null, null, null);
+        p.N = in.readInt();
+        p.Lx = in.readDouble();
+        p.Ly = in.readDouble();
+        p.v = in.readDouble();
+        p.eta = in.readDouble();
+        p.r = in.readDouble();
+        p.steps = in.readInt();
+        p.saveEvery = in.readInt();
+        p.outDir = in.readUTF();
+        p.Mx = in.readInt();
+        p.My = in.readInt();
+        boolean hasSeed = in.readBoolean();
+        int seed = in.readInt();
+        p.seed = hasSeed ? seed : null;
+        p.threads = in.readInt();
+        p.counterRng = in.readBoolean();
+        p.binaryOutput = in.readBoolean();
+        p.doublePrecision = in.readBoolean();
+        p.writeBuffers = in.readInt();
+        p.dropWhenFull = in.readBoolean();
+        p.writeTrajectory = in.readBoolean();
+        p.writePolarization = in.readBoolean();
+        p.atomicOutput = in.readBoolean();
+        p.checkpointEvery = in.readInt();
+        p.autoStop = in.readBoolean();
+        p.stationaryWindow = in.readInt();
+        p.stationaryTolerance = in.readDouble();
+        p.stationarySamples = in.readInt();
+        p.verletSkin = in.readDouble();
+        p.vectorDistance = in.readBoolean();
+        p.unitHeading = in.readBoolean();
+        p.reorderEvery = in.readInt();
+        p.logEverySeconds = in.readInt();
+        p.boundary = Boundary.valueOf(in.readUTF());
+        p.topologicalK = in.readInt();
+        return p;
+    }
+
     public void createCSVFile(){
+        try {
+            Files.createDirectories(Paths.get(outDir));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
         try (BufferedWriter bw = Files.newBufferedWriter(Paths.get(outDir).resolve("params.csv"))) {
-            bw.write("N,L,rho,v,eta,r,steps,save_every\n");
-            bw.write(String.format(Locale.US, "%d,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d\n", N, L, N / (L*L), v, eta, r, steps, saveEvery));
+            bw.write("N,Lx,Ly,rho,v,eta,r,steps,save_every\n");
+            bw.write(String.format(Locale.US, "%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d\n", N, Lx, Ly, N / (Lx*Ly), v, eta, r, steps, saveEvery));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -3,13 +3,14 @@ package Models;
 public class Particle {
     private double x, y, theta;
     private final int id;
+    private double cos, sin;    // se calculan una vez por cambio de ángulo
     private double c,s;
     private int count;
 
     public Particle(double x, double y, double theta, int id) {
         this.x = x;
         this.y = y;
-        this.theta = theta;
+        setTheta(theta);
         this.id = id;
         this.count = 0;
     }
@@ -24,6 +25,7 @@ public class Particle {
     }
 
      public double getTheta(){
+        if (Double.isNaN(theta)) theta = angleOf(cos, sin);
         return theta;
     }
 
@@ -37,11 +39,29 @@ public class Particle {
 
      public void setTheta(double theta){
         this.theta=theta;
+        this.cos = Math.cos(theta);
+        this.sin = Math.sin(theta);
+    }
+
+    // Dirección como vector unitario; el ángulo queda pendiente hasta que se pida
+    public void setHeading(double cos, double sin) {
+        this.theta = Double.NaN;
+        this.cos = cos;
+        this.sin = sin;
+    }
+
+    public double cos() { return cos; }
+    public double sin() { return sin; }
+
+    // Ángulo en [0, 2π) del vector (cos, sin)
+    static double angleOf(double cos, double sin) {
+        double theta = Math.atan2(sin, cos);
+        return theta < 0 ? theta + 2.0 * Math.PI : theta;
     }
 
     public void registerCloseParticle(Particle p) {
-        c += Math.cos(p.getTheta());
-        s += Math.sin(p.getTheta());
+        c += p.cos;
+        s += p.sin;
         count += 1;
     }
     public static void registerCloseParticles(Particle p1, Particle p2){ //! suma atomica
@@ -49,6 +69,9 @@ public class Particle {
         p2.registerCloseParticle(p1);
     }
 
+    public double getSumCos() { return c; }
+    public double getSumSin() { return s; }
+
     public double getMeanAngle () {
         return Math.atan2(s/count, c/count);
     }
@@ -63,6 +86,6 @@ public class Particle {
         count = 0;
     }
 
-    public double vx(double v) { return v * Math.cos(theta); }
-    public double vy(double v) { return v * Math.sin(theta); }
+    public double vx(double v) { return v * cos; }
+    public double vy(double v) { return v * sin; }
 }
@@ -0,0 +1,61 @@
+package Models;
+
+/**
+ * Almacenamiento de las partículas de una simulación, indexado por id (0..N-1).
+ * Guarda posición, ángulo y los acumuladores del ángulo promedio de los vecinos.
+ * Si el store se reordena (ArrayParticleStore.permute) la posición i deja de coincidir con el id externo:
+ * las salidas recorren rowIndex(k) y escriben getId.
+ */
+public interface ParticleStore {
+
+    int size();
+
+    double getX(int i);
+
+    double getY(int i);
+
+    double getTheta(int i);
+
+    // Id externo de la partícula en la posición i; se conserva al reordenar
+    default long getId(int i) { return i; }
+
+    // Posición de la k-ésima partícula en orden de id externo
+    default int rowIndex(int k) { return k; }
+
+    // cos(θ) y sin(θ) de la partícula i
+    double cos(int i);
+
+    double sin(int i);
+
+    void setX(int i, double x);
+
+    void setY(int i, double y);
+
+    void setTheta(int i, double theta);
+
+    // Fija la dirección como vector unitario sin pasar por el ángulo; θ se calcula recién si se pide
+    void setHeading(int i, double cos, double sin);
+
+    // Suma la dirección de j al promedio de i
+    void registerCloseParticle(int i, int j);
+
+    default void registerCloseParticles(int i, int j) {
+        registerCloseParticle(i, j);
+        registerCloseParticle(j, i);
+    }
+
+    double getMeanAngle(int i);
+
+    // Suma sin normalizar de las direcciones registradas para i
+    double sumCos(int i);
+
+    double sumSin(int i);
+
+    boolean hasCloseParticles(int i);
+
+    void resetMeanAngle(int i);
+
+    default double vx(int i, double v) { return v * cos(i); }
+
+    default double vy(int i, double v) { return v * sin(i); }
+}
@@ -0,0 +1,96 @@
+package Models;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Polarización v_a(t) = |Σ v_i| / (N v), con su media y varianza acumuladas (Welford).
+ * Escribe polarization.csv con columnas t,v_a,va_mean,va_var (salvo con writeCsv en false).
+ * Es el único lugar donde se calcula v_a en cada paso: los demás observables leen getLast().
+ */
+public class PolarizationObservable implements Observable {
+    public static final String FILE_NAME = "polarization.csv";
+
+    private final Path file;        // null: solo en memoria
+    private BufferedWriter bw;
+
+    private double last;
+    private final RunningStats stats = new RunningStats();
+
+    public PolarizationObservable(Path simDir, boolean writeCsv) {
+        this.file = writeCsv ? simDir.resolve(FILE_NAME) : null;
+    }
+
+    public PolarizationObservable(Path simDir) {
+        this(simDir, true);
+    }
+
+    public static double polarization(ParticleStore particles) {
+        double c = 0.0, s = 0.0;
+        // En orden de id para que el resultado no dependa de cómo esté ordenado el store
+        for (int k = 0; k < particles.size(); k++) {
+            int i = particles.rowIndex(k);
+            c += particles.cos(i);
+            s += particles.sin(i);
+        }
+        return Math.sqrt(c * c + s * s) / particles.size();
+    }
+
+    @Override
+    public void observe(int t, ParticleStore particles) throws IOException {
+        record(t, polarization(particles));
+    }
+
+    // Agrega v_a(t) ya calculado (p.ej. por DistributedSimulation a partir de las sumas de cada franja)
+    public void record(int t, double va) throws IOException {
+        last = va;
+        stats.add(va);
+
+        if (file == null) return;
+        if (bw == null) {
+            bw = Files.newBufferedWriter(file);
+            bw.write("t,v_a,va_mean,va_var\n");
+        }
+        bw.write(String.format(Locale.US, "%d,%.6f,%.6f,%.6f\n", t, last, stats.getMean(), stats.getVariance()));
+    }
+
+    public double getLast() { return last; }
+
+    public double getMean() { return stats.getMean(); }
+
+    // Varianza poblacional de los valores observados
+    public double getVariance() { return stats.getVariance(); }
+
+    public long getCount() { return stats.getCount(); }
+
+    double getM2() { return stats.getM2(); }
+
+    // Retoma desde un checkpoint: conserva las filas hasta el paso `step` y sigue agregando al final
+    void restore(int step, long n, double mean, double m2) throws IOException {
+        stats.restore(n, mean, m2);
+        if (file == null) return;
+
+        List<String> kept = new ArrayList<>();
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file)) {
+                if (kept.isEmpty() || Integer.parseInt(line.substring(0, line.indexOf(','))) <= step) kept.add(line);
+            }
+        }
+        bw = Files.newBufferedWriter(file);
+        if (kept.isEmpty()) kept.add("t,v_a,va_mean,va_var");
+        for (String line : kept) {
+            bw.write(line);
+            bw.write("\n");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (bw != null) bw.close();
+    }
+}
@@ -0,0 +1,183 @@
+package Models;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * R réplicas independientes de los mismos parámetros (semillas seed, seed+1, ...) avanzadas a la par.
+ * Cada réplica es una Simulation de un hilo con su propio sims/sim_XXXX/polarization.csv; los hilos de
+ * p.threads se reparten entre réplicas, que para N chico aprovecha mejor los núcleos que paralelizar una.
+ * En outDir se escriben ensemble.csv con t,replicas,va_mean,va_sem por paso y ensemble_stationary.csv con
+ * el promedio temporal de v_a de cada réplica desde transientSteps, su media y su error estándar.
+ */
+public class ReplicaBatch {
+    public static final String FILE_NAME = "ensemble.csv";
+    public static final String STATIONARY_FILE_NAME = "ensemble_stationary.csv";
+
+    private final Params p;
+    private final int transientSteps;
+    private final List<Simulation> replicas = new ArrayList<>();
+    private final int threads;
+
+    // promedio temporal de v_a de cada réplica desde transientSteps
+    private final double[] vaSum;
+    private final long[] vaCount;
+
+    public ReplicaBatch(Params p, int replicas, int transientSteps) throws IOException {
+        if (replicas < 1) throw new IllegalArgumentException("Se necesita al menos una réplica: " + replicas);
+        this.p = p;
+        this.transientSteps = transientSteps;
+        this.threads = Math.min(replicas, p.threads <= 0 ? Runtime.getRuntime().availableProcessors() : p.threads);
+        this.vaSum = new double[replicas];
+        this.vaCount = new long[replicas];
+
+        int baseSeed = p.seed != null ? p.seed : new Random().nextInt();
+        for (int r = 0; r < replicas; r++) {
+            Params params = new Params(p);
+            params.setSeed(baseSeed + r);
+            params.setThreads(1);
+            params.setWritePolarization(true);
+            this.replicas.add(new Simulation(params));
+        }
+    }
+
+    // mode como en continueRun: "CIM", "FVM" o "BRUTE_FORCE"
+    public void run(String mode) throws IOException {
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        Files.createDirectories(Paths.get(p.outDir));
+
+        try (BufferedWriter bw = Files.newBufferedWriter(Paths.get(p.outDir).resolve(FILE_NAME))) {
+            bw.write("t,replicas,va_mean,va_sem\n");
+            forEach(pool, (r, sim) -> sim.start(mode));
+            record(bw, replicas.get(0).getStep());
+
+            boolean[] advanced = new boolean[replicas.size()];
+            while (true) {
+                forEach(pool, (r, sim) -> advanced[r] = sim.advance());
+                if (!anyTrue(advanced)) break;
+                record(bw, stepOf(advanced));
+            }
+        } finally {
+            for (Simulation sim : replicas) sim.closeRun();
+            if (pool != null) pool.shutdown();
+        }
+
+        for (Simulation sim : replicas) sim.finish();
+        writeStationary();
+    }
+
+    private interface ReplicaTask {
+        void run(int r, Simulation sim) throws IOException;
+    }
+
+    private void forEach(ForkJoinPool pool, ReplicaTask task) throws IOException {
+        if (pool == null) {
+            for (int r = 0; r < replicas.size(); r++) task.run(r, replicas.get(r));
+            return;
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(replicas.size());
+        for (int r = 0; r < replicas.size(); r++) {
+            int replica = r;
+            tasks.add(pool.submit(() -> {
+                task.run(replica, replicas.get(replica));
+                return null;
+            }));
+        }
+        for (ForkJoinTask<?> t : tasks) {
+            t.join();
+        }
+    }
+
+    // Media y error estándar de v_a entre las réplicas que siguen corriendo (con autoStop pueden cortar antes)
+    private void record(BufferedWriter bw, int t) throws IOException {
+        RunningStats stats = new RunningStats();
+        for (int r = 0; r < replicas.size(); r++) {
+            Simulation sim = replicas.get(r);
+            if (sim.getStep() != t) continue;
+
+            double va = sim.getPolarization().getLast();
+            stats.add(va);
+            if (t >= transientSteps) {
+                vaSum[r] += va;
+                vaCount[r]++;
+            }
+        }
+        int n = (int) stats.getCount();
+        bw.write(String.format(Locale.US, "%d,%d,%.6f,%.6f\n", t, n, stats.getMean(), standardError(n, stats.getM2())));
+    }
+
+    private int stepOf(boolean[] advanced) {
+        for (int r = 0; r < advanced.length; r++) {
+            if (advanced[r]) return replicas.get(r).getStep();
+        }
+        return -1;
+    }
+
+    private static boolean anyTrue(boolean[] values) {
+        for (boolean v : values) {
+            if (v) return true;
+        }
+        return false;
+    }
+
+    // Error estándar de la media a partir de la suma de cuadrados de Welford (varianza muestral)
+    private static double standardError(int n, double m2) {
+        return n > 1 ? Math.sqrt(m2 / (n - 1) / n) : 0.0;
+    }
+
+    private void writeStationary() throws IOException {
+        try (BufferedWriter bw = Files.newBufferedWriter(Paths.get(p.outDir).resolve(STATIONARY_FILE_NAME))) {
+            bw.write("replicas,transient_steps,va_mean,va_sem\n");
+            bw.write(String.format(Locale.US, "%d,%d,%.6f,%.6f\n", replicas.size(), transientSteps, getMean(), getStandardError()));
+        }
+    }
+
+    /* -------------------- RESULTADOS  -------------------- */
+
+    // Promedio temporal de v_a de cada réplica desde transientSteps (NaN si no llegó)
+    public double[] getReplicaMeans() {
+        double[] means = new double[replicas.size()];
+        for (int r = 0; r < means.length; r++) {
+            means[r] = vaCount[r] > 0 ? vaSum[r] / vaCount[r] : Double.NaN;
+        }
+        return means;
+    }
+
+    public double getMean() {
+        double sum = 0.0;
+        int n = 0;
+        for (double m : getReplicaMeans()) {
+            if (Double.isNaN(m)) continue;
+            sum += m;
+            n++;
+        }
+        return n > 0 ? sum / n : Double.NaN;
+    }
+
+    public double getStandardError() {
+        double mean = getMean(), m2 = 0.0;
+        int n = 0;
+        for (double m : getReplicaMeans()) {
+            if (Double.isNaN(m)) continue;
+            m2 += (m - mean) * (m - mean);
+            n++;
+        }
+        return standardError(n, m2);
+    }
+
+    public List<Path> getSimDirs() {
+        List<Path> dirs = new ArrayList<>();
+        for (Simulation sim : replicas) dirs.add(sim.getSimDir());
+        return dirs;
+    }
+}
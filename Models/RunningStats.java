@@ -0,0 +1,35 @@
+package Models;
+
+/**
+ * Media y suma de cuadrados de las desviaciones acumuladas de a un valor (Welford), sin guardar los valores.
+ */
+final class RunningStats {
+    private long n;
+    private double mean, m2;
+
+    void add(double x) {
+        n++;
+        double delta = x - mean;
+        mean += delta / n;
+        m2 += delta * (x - mean);
+    }
+
+    // Retoma desde un estado guardado (p.ej. un checkpoint)
+    void restore(long n, double mean, double m2) {
+        this.n = n;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    long getCount() { return n; }
+
+    double getMean() { return mean; }
+
+    double getM2() { return m2; }
+
+    // Varianza poblacional
+    double getVariance() { return n > 0 ? m2 / n : 0.0; }
+
+    // Varianza muestral (n - 1)
+    double getSampleVariance() { return n > 1 ? m2 / (n - 1) : 0.0; }
+}
@@ -0,0 +1,32 @@
+package Models;
+
+class ScalarDistanceKernel implements DistanceKernel {
+
+    @Override
+    public int findHits(double x, double y, double[] xs, double[] ys, int from, int to, double Lx, double Ly, double r2, int[] hits) {
+        int found = 0;
+        for (int q = from; q < to; q++) {
+            double dx = Math.abs(xs[q] - x);
+            double dy = Math.abs(ys[q] - y);
+            dx = Math.min(dx, Lx - dx);
+            dy = Math.min(dy, Ly - dy);
+            if (dx*dx + dy*dy <= r2) hits[found++] = q;
+        }
+        return found;
+    }
+
+    // Sin bordes periódicos: distancia directa
+    static final class Euclidean implements DistanceKernel {
+
+        @Override
+        public int findHits(double x, double y, double[] xs, double[] ys, int from, int to, double Lx, double Ly, double r2, int[] hits) {
+            int found = 0;
+            for (int q = from; q < to; q++) {
+                double dx = xs[q] - x;
+                double dy = ys[q] - y;
+                if (dx*dx + dy*dy <= r2) hits[found++] = q;
+            }
+            return found;
+        }
+    }
+}
@@ -3,310 +3,872 @@ package Models;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Simulation {
     private final Params p;
-    private final List<Particle> particles;
+    private final ParticleStore particles;
     private final Random rng;
-    private final Path simDir;
-    private Map<Integer, List<Particle>> grid;
+    private long counterSeed;
+    private int step;
+    private boolean fresh = true;
+    private String mode;
+    private Path simDir;
+    private final Path finalDir;
+    private final CellGrid grid;
     private final boolean periodic;
-    private final double cellSize;
-    private final int NOT_FOUND = -1;
+    private final double periodX, periodY;  // Lx y Ly en el toro, infinito sin bordes periódicos (distancia directa)
+    private final ThreadLocal<int[]> neighborsBuffer;
+    private final ThreadLocal<int[]> hitsBuffer;        // índices en sortedIdx que devuelve el kernel de distancias
+    private final DistanceKernel distanceKernel;
+    private final int threads;
+    private ForkJoinPool pool;
+    private StepKernel stepKernel;   // motor preparado con prepare() para avanzar de a un paso
+    private double[] noiseBuffer;
+    private VerletList verlet;
+    private TopologicalSearch topological;
+    private final LongAdder pairsTested = new LongAdder();    // distancias evaluadas
+    private final LongAdder pairsAccepted = new LongAdder();  // de esas, las que quedaron dentro de r
+    private final SimulationMetrics metrics;
+    private TrajectoryWriter writer;
+    private final List<Observable> observables = new ArrayList<>();
+    private PolarizationObservable polarization;
+    private StationaryDetector stationary;
 
     public Simulation(Params p) throws IOException {
-        this.p = p;
-        this.particles = new ArrayList<>(p.N);
-        this.rng = p.seed==null? new Random():new Random(p.seed);
-        this.periodic = true;
-        cellSize = p.L / p.M;
+        this(p, new ArrayParticleStore(p.N));
+    }
 
-        long ts = System.currentTimeMillis() / 1000L;
-        this.simDir = Paths.get(p.outDir + "/sims", "sim_" + ts + "_" + rng.nextInt(p.N) + ".csv");
-        Files.createDirectories(simDir);
+    public Simulation(Params p, ParticleStore particles) throws IOException {
+        this(p, particles, p.seed==null? new Random():new Random(p.seed), null);
+        this.counterSeed = p.counterRng ? (p.seed == null ? rng.nextLong() : p.seed) : 0L;
 
         generateParticles();
     }
 
-    /* -------------------- INITIALIZATION METHODS  -------------------- */
+    // resumeDir != null retoma una corrida existente en ese directorio
+    private Simulation(Params p, ParticleStore particles, Random rng, Path resumeDir) throws IOException {
+        this.p = p;
+        this.particles = particles;
+        this.rng = rng;
+        this.periodic = p.boundary.periodic();
+        this.periodX = p.boundary.period(p.Lx);
+        this.periodY = p.boundary.period(p.Ly);
+        this.grid = new CellGrid(p.cellsX(), p.cellsY(), p.Lx, p.Ly, p.N, periodic);
+        this.neighborsBuffer = ThreadLocal.withInitial(() -> new int[16]);
+        this.hitsBuffer = ThreadLocal.withInitial(() -> new int[16]);
+        this.distanceKernel = p.vectorDistance ? DistanceKernel.best(p.boundary) : DistanceKernel.scalar(p.boundary);
+        this.threads = p.threads <= 0 ? Runtime.getRuntime().availableProcessors() : p.threads;
+        if (p.reorderEvery > 0 && !(particles instanceof ArrayParticleStore)) {
+            throw new IllegalArgumentException("reorderEvery necesita un ArrayParticleStore");
+        }
 
-    private void generateParticles() {
-        // Inicialización de partículas en posiciones y angulo aleatorios dentro del espacio
+        if (resumeDir == null) {
+            long ts = System.currentTimeMillis() / 1000L;
+            this.finalDir = createSimDir(Paths.get(p.outDir + "/sims"), "sim_" + ts + "_" + rng.nextInt(p.N), p.atomicOutput);
+            this.simDir = p.atomicOutput ? tempDir(finalDir) : finalDir;
+        } else {
+            this.simDir = resumeDir;
+            this.finalDir = finalDir(resumeDir);
+        }
+        this.metrics = new SimulationMetrics(finalDir.getFileName().toString(), p, particles, pairsTested, pairsAccepted);
+        // v_a se calcula siempre, una vez por paso y antes que el resto de los observables, que lo leen de acá
+        polarization = new PolarizationObservable(simDir, p.writePolarization);
+        observables.add(polarization);
+        if (p.autoStop) {
+            stationary = new StationaryDetector(simDir, polarization, p.stationaryWindow, p.stationaryTolerance, p.stationarySamples);
+            observables.add(stationary);
+        }
+    }
+
+    /* -------------------- CHECKPOINT METHODS  -------------------- */
+
+    // Retoma la corrida guardada en checkpointFile, en su mismo directorio; se continúa con continueRun()
+    public static Simulation resume(Path checkpointFile) throws IOException {
+        return resume(checkpointFile, null);
+    }
+
+    // steps != null cambia la cantidad total de pasos (p.ej. para extender una corrida terminada)
+    public static Simulation resume(Path checkpointFile, Integer steps) throws IOException {
+        Checkpoint cp = Checkpoint.read(checkpointFile);
+        if (steps != null) cp.params.setSteps(steps);
+
+        Simulation sim = new Simulation(cp.params, new ArrayParticleStore(cp.params.N), cp.rng, checkpointFile.toAbsolutePath().getParent());
+        sim.restore(cp);
+        sim.fresh = false;
+        if (cp.polarizationCount >= 0) {
+            sim.polarization.restore(cp.step, cp.polarizationCount, cp.polarizationMean, cp.polarizationM2);
+        }
+        // Sin esto la detección arrancaría de cero en el paso del checkpoint y cortaría en otro paso
+        if (cp.stationary != null) {
+            sim.stationary.readState(new DataInputStream(new ByteArrayInputStream(cp.stationary)));
+        }
+        return sim;
+    }
+
+    // Nueva corrida en outDir que parte del estado guardado pero con otra semilla (p.ej. varias corridas
+    // estacionarias a partir de un mismo transitorio)
+    public static Simulation branch(Path checkpointFile, int seed, String outDir) throws IOException {
+        Checkpoint cp = Checkpoint.read(checkpointFile);
+        Params params = new Params(cp.params);
+        params.setSeed(seed);
+        params.outDir = outDir;
+
+        Simulation sim = new Simulation(params, new ArrayParticleStore(params.N), new Random(seed), null);
+        sim.restore(cp);
+        sim.counterSeed = seed;
+        return sim;
+    }
+
+    private void restore(Checkpoint cp) {
         for (int i = 0; i < p.N; i++) {
-            double x = rng.nextDouble() * p.L;
-            double y = rng.nextDouble() * p.L;
-            double theta = rng.nextDouble() * 2.0 * Math.PI;
-            particles.add(new Particle(x, y, theta,i));
+            particles.setX(i, cp.x[i]);
+            particles.setY(i, cp.y[i]);
+            if (cp.cos != null) particles.setHeading(i, cp.cos[i], cp.sin[i]);
+            else particles.setTheta(i, cp.theta[i]);
         }
+        if (particles instanceof ArrayParticleStore) ((ArrayParticleStore) particles).setIds(cp.ids);
+        step = cp.step;
+        mode = cp.mode;
+        counterSeed = cp.counterSeed;
     }
 
-    private void initializeGrid() {
-        grid = new HashMap<>();
-        for (Particle particle : particles) {
-            int cellX = (int) (particle.getX() / cellSize);
-            int cellY = (int) (particle.getY() / cellSize);
-            int cellIndex = cellX + cellY * p.M;
-            grid.computeIfAbsent(cellIndex, k -> new ArrayList<>()).add(particle);
+    private void writeCheckpoint() throws IOException {
+        double[] x = new double[p.N], y = new double[p.N], theta = new double[p.N];
+        long[] ids = new long[p.N];
+        double[] cos = p.unitHeading ? new double[p.N] : null, sin = p.unitHeading ? new double[p.N] : null;
+        for (int i = 0; i < p.N; i++) {
+            x[i] = particles.getX(i);
+            y[i] = particles.getY(i);
+            theta[i] = particles.getTheta(i);
+            ids[i] = particles.getId(i);
+            if (p.unitHeading) {
+                cos[i] = particles.cos(i);
+                sin[i] = particles.sin(i);
+            }
+        }
+        long n = polarization.getCount();
+        double mean = polarization.getMean();
+        double m2 = polarization.getM2();
+        byte[] detector = null;
+        if (stationary != null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            stationary.writeState(new DataOutputStream(bytes));
+            detector = bytes.toByteArray();
         }
+        new Checkpoint(p, step, mode, rng, counterSeed, x, y, theta, ids, cos, sin, n, mean, m2, detector).write(simDir);
     }
 
-    private int getCellIndex(Particle particle) {
-        int cellX = (int) (particle.getX() / cellSize);
-        int cellY = (int) (particle.getY() / cellSize);
-        return cellX + cellY * p.M;
+    // Sigue una corrida retomada con el mismo método con que se inició
+    public void continueRun() throws IOException {
+        if (mode == null) throw new IllegalStateException("La simulación no fue retomada de un checkpoint");
+        run(mode);
     }
 
-    private Map<Integer, List<Integer>> cellNeighbors;
+    public int getStep() { return step; }
 
-    private void computeTopCornerCellNeighbors() {
-        cellNeighbors = new HashMap<>();
+    // Contadores acumulados de la corrida: distancias evaluadas y cuántas quedaron dentro de r.
+    // El CIM serie evalúa cada par una vez; el resto de los motores lo evalúa desde cada partícula
+    public long getPairsTested() { return pairsTested.sum(); }
 
-        for (int cellY = 0; cellY < p.M; cellY++) {
-            for (int cellX = 0; cellX < p.M; cellX++) {
-                int cellIndex = cellX + cellY * p.M;
-                List<Integer> neighbors = new ArrayList<>();
+    public long getPairsAccepted() { return pairsAccepted.sum(); }
 
-                for (int dx = 0; dx <= 1; dx++) {
-                    for (int dy = -1; dy <= 1; dy++) {
-                        if ( dx==0 && dy==-1 ) continue;
-                        int neighborCellX = cellX + dx;
-                        int neighborCellY = cellY + dy;
+    public int getMx() { return grid.getMx(); }
 
-                        if (periodic) {
-                            neighborCellX = (neighborCellX + p.M) % p.M;
-                            neighborCellY = (neighborCellY + p.M) % p.M;
-                        }
+    public int getMy() { return grid.getMy(); }
 
-                        if (!periodic && (neighborCellX < 0 || neighborCellX >= p.M || neighborCellY < 0 || neighborCellY >= p.M)) {
-                            continue;
-                        }
+    // Reconstrucciones de la lista de Verlet (0 si no se usa)
+    public int getVerletRebuilds() { return verlet == null ? 0 : verlet.getRebuilds(); }
 
-                        int neighborCellIndex = neighborCellX + neighborCellY * p.M;
-                        neighbors.add(neighborCellIndex);
-                    }
-                }
-                cellNeighbors.put(cellIndex, neighbors);
+    /* -------------------- INITIALIZATION METHODS  -------------------- */
+
+    // Elige sims/<name>.csv, agregando un sufijo si otra corrida ya usó el mismo nombre.
+    // En modo atómico se crea el temporal .<name>.csv.tmp y el final aparece recién en publish()
+    static Path createSimDir(Path simsDir, String name, boolean atomic) throws IOException {
+        Files.createDirectories(simsDir);
+        for (int k = 0; ; k++) {
+            Path dir = simsDir.resolve(name + (k == 0 ? "" : "_" + k) + ".csv");
+            if (atomic && Files.exists(dir)) continue;
+            try {
+                Files.createDirectory(atomic ? tempDir(dir) : dir);
+                return dir;
+            } catch (FileAlreadyExistsException e) {
+                // probar el siguiente sufijo
             }
         }
     }
 
-    private void computeAllCellNeighbors() {
-        cellNeighbors = new HashMap<>();
-
-        for (int cellY = 0; cellY < p.M; cellY++) {
-            for (int cellX = 0; cellX < p.M; cellX++) {
-                int cellIndex = cellX + cellY * p.M;
-                List<Integer> neighbors = new ArrayList<>();
+    private static Path tempDir(Path dir) {
+        return dir.resolveSibling("." + dir.getFileName() + ".tmp");
+    }
 
-                // Recorro el bloque 3x3 (incluye la celda misma)
-                for (int dx = -1; dx <= 1; dx++) {
-                    for (int dy = -1; dy <= 1; dy++) {
-                        int neighborCellX = (cellX + dx + p.M) % p.M;
-                        int neighborCellY = (cellY + dy + p.M) % p.M;
+    // Inversa de tempDir; un directorio ya publicado es su propio destino
+    private static Path finalDir(Path dir) {
+        String name = dir.getFileName().toString();
+        if (name.startsWith(".") && name.endsWith(".tmp")) {
+            return dir.resolveSibling(name.substring(1, name.length() - ".tmp".length()));
+        }
+        return dir;
+    }
 
-                        int neighborCellIndex = neighborCellX + neighborCellY * p.M;
-                        neighbors.add(neighborCellIndex);
-                    }
-                }
-                cellNeighbors.put(cellIndex, neighbors);
-            }
+    private void generateParticles() {
+        // Inicialización de partículas en posiciones y angulo aleatorios dentro del espacio
+        for (int i = 0; i < p.N; i++) {
+            double x = (p.counterRng ? CounterRng.uniform(counterSeed, 0, i, CounterRng.INIT_X) : rng.nextDouble()) * p.Lx;
+            double y = (p.counterRng ? CounterRng.uniform(counterSeed, 0, i, CounterRng.INIT_Y) : rng.nextDouble()) * p.Ly;
+            double theta = (p.counterRng ? CounterRng.uniform(counterSeed, 0, i, CounterRng.INIT_THETA) : rng.nextDouble()) * 2.0 * Math.PI;
+            particles.setX(i, x);
+            particles.setY(i, y);
+            particles.setTheta(i, theta);
         }
     }
 
+    private void initializeGrid() {
+        grid.build(particles);
+    }
+
     /* -------------------- UPDATE PARTICLES METHODS  -------------------- */
 
     private void updateParticlesWithRandomNeighbor() {
-        for (Particle pi : particles) {     //! paralelizable
-            if ( pi.hasCloseParticles() ) {
-                double meanAngle = pi.getMeanAngle();
-                double noise = rng.nextDouble() * p.eta - (p.eta / 2.0);
-                pi.setTheta(wrapAngle(meanAngle + noise));
-                pi.resetMeanAngle();
+        if (pool != null) {
+            parallelFor(p.N, this::updateParticlesWithRandomNeighbor);
+        } else {
+            updateParticlesWithRandomNeighbor(0, p.N);
+        }
+    }
+
+    private void updateParticlesWithRandomNeighbor(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if ( particles.hasCloseParticles(i) ) {
+                turn(i, noise(i));
+                particles.resetMeanAngle(i);
             }
 
-            pi.setX(wrapPos(pi.getX() + p.v * Math.cos(pi.getTheta()), p.L));
-            pi.setY(wrapPos(pi.getY() + p.v * Math.sin(pi.getTheta()), p.L));
+            p.boundary.move(particles, i, p);
         }
     }
 
     private void updateParticles() {
-        for (Particle pi : particles) {     //! paralelizable
-            pi.registerCloseParticle(pi);               // Se debe considerar a sí misma para calcular el meanAngle
-            double meanAngle = pi.getMeanAngle();
-            double noise = rng.nextDouble() * p.eta - (p.eta / 2.0);
-            pi.setTheta(wrapAngle(meanAngle + noise));
-            pi.setX(wrapPos(pi.getX() + p.v * Math.cos(pi.getTheta()), p.L));
-            pi.setY(wrapPos(pi.getY() + p.v * Math.sin(pi.getTheta()), p.L));
-            pi.resetMeanAngle();
+        for (int i = 0; i < p.N; i++) {
+            updateParticle(i, noise(i));
+        }
+    }
+
+    private void updateParticlesParallel() {
+        if (p.counterRng) {
+            parallelFor(p.N, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    updateParticle(i, noise(i));
+                }
+            });
+            return;
+        }
+
+        // El ruido se sortea en orden de partícula para consumir rng igual que la versión serie
+        for (int i = 0; i < p.N; i++) {
+            noiseBuffer[i] = noise(i);
+        }
+        parallelFor(p.N, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                updateParticle(i, noiseBuffer[i]);
+            }
+        });
+    }
+
+    private void updateParticle(int i, double noise) {
+        updateParticle(particles, p, i, noise);
+    }
+
+    private void turn(int i, double noise) {
+        turn(particles, p, i, noise);
+    }
+
+    // Las versiones estáticas las comparte SlabWorker, para que cada franja haga exactamente las mismas cuentas
+    static void updateParticle(ParticleStore particles, Params p, int i, double noise) {
+        particles.registerCloseParticle(i, i);          // Se debe considerar a sí misma para calcular el meanAngle
+        turn(particles, p, i, noise);
+        p.boundary.move(particles, i, p);
+        particles.resetMeanAngle(i);
+    }
+
+    // Nueva dirección de i: promedio de las direcciones registradas más el ruido
+    static void turn(ParticleStore particles, Params p, int i, double noise) {
+        if (p.unitHeading) {
+            turnUnit(particles, i, particles.sumCos(i), particles.sumSin(i), noise);
+        } else {
+            double meanAngle = particles.getMeanAngle(i);
+            particles.setTheta(i, wrapAngle(meanAngle + noise));
         }
     }
 
+    // Sin atan2 ni wrapAngle: se normaliza la suma de direcciones y se la rota por el ruido
+    static void turnUnit(ParticleStore particles, int i, double cos, double sin, double noise) {
+        double norm = Math.sqrt(cos*cos + sin*sin);
+        // atan2(0, 0) = 0 en el camino por ángulos
+        if (norm == 0) { cos = 1.0; sin = 0.0; } else { cos /= norm; sin /= norm; }
+        double cosNoise = Math.cos(noise), sinNoise = Math.sin(noise);
+        particles.setHeading(i, cos*cosNoise - sin*sinNoise, sin*cosNoise + cos*sinNoise);
+    }
+
     /* -------------------- CIM FIND NEIGHBORS METHODS  -------------------- */
 
     private void findRandomNeighborsCIM() {
+        if (pool != null) {
+            parallelFor(p.N, this::findRandomNeighborsCIM);
+        } else {
+            findRandomNeighborsCIM(0, p.N);
+        }
+    }
+
+    // Cada partícula elige su vecino y solo escribe su propio acumulador
+    private void findRandomNeighborsCIM(int from, int to) {
         final double r2 = p.r * p.r;
-        for (Particle p1 : particles) {
-            int cellX = (int) (p1.getX() / cellSize);
-            int cellY = (int) (p1.getY() / cellSize);
-            int cellIndex = cellX + cellY * p.M;
-
-            List<Integer> neighbors = new ArrayList<>();
-            for (int neighborIndex : cellNeighbors.get(cellIndex)) {
-                for (Particle p2 : grid.getOrDefault(neighborIndex, new ArrayList<>())) {
-                    if (p1.getId() != p2.getId() && calculateDistance(p2, p1) <= r2 ) {
-                        neighbors.add(p2.getId());
-                    }
+        final int[] stencil = grid.stencil, cellStart = grid.cellStart, cellCount = grid.cellCount, sortedIdx = grid.sortedIdx;
+        final int width = grid.stencilWidth;
+        final double[] sortedX = grid.sortedX, sortedY = grid.sortedY;
+        int[] buffer = neighborsBuffer.get();
+        int[] hits = hitsBuffer.get();
+        long tested = 0, accepted = 0;
+
+        for (int p1 = from; p1 < to; p1++) {
+            int cellIndex = grid.cellOf[p1];
+            double x1 = particles.getX(p1), y1 = particles.getY(p1);
+
+            int found = 0;
+            for (int k = cellIndex * width; k < (cellIndex + 1) * width; k++) {
+                int neighborIndex = stencil[k];
+                if (neighborIndex == CellGrid.NOT_FOUND) continue;
+
+                int start = cellStart[neighborIndex], end = start + cellCount[neighborIndex];
+                if (hits.length < end - start) hits = new int[Math.max(2 * hits.length, end - start)];
+                int n = distanceKernel.findHits(x1, y1, sortedX, sortedY, start, end, p.Lx, p.Ly, r2, hits);
+                tested += end - start;
+
+                for (int h = 0; h < n; h++) {
+                    int p2 = sortedIdx[hits[h]];
+                    if (p1 == p2) continue;
+                    if (found == buffer.length) buffer = Arrays.copyOf(buffer, 2 * found);
+                    buffer[found++] = p2;
                 }
             }
+            tested--;   // la propia partícula
 
-            if (!neighbors.isEmpty()) {
-                Particle randomNeighbor = particles.get( neighbors.get( rng.nextInt(neighbors.size()) ) );
-                p1.registerCloseParticle(randomNeighbor);
+            if (found > 0) {
+                int pick = p.counterRng ? CounterRng.nextInt(counterSeed, step, particles.getId(p1), CounterRng.NEIGHBOR, found) : rng.nextInt(found);
+                particles.registerCloseParticle(p1, buffer[pick]);
             }
-
+            accepted += found;
         }
+        neighborsBuffer.set(buffer);
+        hitsBuffer.set(hits);
+        pairsTested.add(tested);
+        pairsAccepted.add(accepted);
     }
 
     private void findNeighborsCIM() {
         final double r2 = p.r * p.r;
-        for (Particle p1 : particles) {
-            int cellX = (int) (p1.getX() / cellSize);
-            int cellY = (int) (p1.getY() / cellSize);
-            int cellIndex = cellX + cellY * p.M;
+        final int[] stencil = grid.stencil, cellStart = grid.cellStart, cellCount = grid.cellCount, sortedIdx = grid.sortedIdx;
+        final int width = grid.stencilWidth;
+        final double[] sortedX = grid.sortedX, sortedY = grid.sortedY;
+        int[] hits = hitsBuffer.get();
+        long tested = 0, accepted = 0;
+
+        for (int p1 = 0; p1 < p.N; p1++) {
+            int cellIndex = grid.cellOf[p1];
+            double x1 = particles.getX(p1), y1 = particles.getY(p1);
+
+            for (int k = cellIndex * width; k < (cellIndex + 1) * width; k++) {
+                int neighborIndex = stencil[k];
+                if (neighborIndex == CellGrid.NOT_FOUND) continue;
+
+                // En la propia celda solo las partículas de id mayor, que quedan después en sortedIdx
+                int start = neighborIndex==cellIndex ? grid.sortedPos[p1] + 1 : cellStart[neighborIndex];
+                int end = cellStart[neighborIndex] + cellCount[neighborIndex];
+                if (hits.length < end - start) hits = new int[Math.max(2 * hits.length, end - start)];
+                int n = distanceKernel.findHits(x1, y1, sortedX, sortedY, start, end, p.Lx, p.Ly, r2, hits);
+                tested += Math.max(0, end - start);
+
+                for (int h = 0; h < n; h++) {
+                    particles.registerCloseParticles(p1, sortedIdx[hits[h]]);
+                }
+                accepted += n;
+            }
+
+        }
+        hitsBuffer.set(hits);
+        pairsTested.add(tested);
+        pairsAccepted.add(accepted);
+    }
+
+    private void findNeighborsVerlet() {
+        final double r2 = p.r * p.r;
+        final int[] first = verlet.first, second = verlet.second;
+        final int size = verlet.size;
+        long accepted = 0;
+
+        for (int k = 0; k < size; k++) {
+            int p1 = first[k], p2 = second[k];
+            if (calculateDistance(p2, p1) <= r2) {
+                particles.registerCloseParticles(p1, p2);
+                accepted++;
+            }
+        }
+        pairsTested.add(size);
+        pairsAccepted.add(accepted);
+    }
 
-            for (int neighborIndex : cellNeighbors.get(cellIndex)) {
-                for (Particle p2 : grid.getOrDefault(neighborIndex, new ArrayList<>())) {
-                    if (neighborIndex==cellIndex && p1.getId() >= p2.getId()) continue;
+    /* -------------------- PARALLEL CIM METHODS  -------------------- */
 
-                    if (calculateDistance(p2, p1) <= r2 ) {
-                        Particle.registerCloseParticles(p1, p2);
+    // Cada partícula recorre el bloque 3x3 completo y solo escribe su propio acumulador, así no hay
+    // carreras entre hilos y el orden de suma de cada partícula no depende de cómo se reparten las filas.
+    private void findNeighborsParallelCIM() {
+        final double r2 = p.r * p.r;
+        final int[] stencil = grid.stencil, cellStart = grid.cellStart, cellCount = grid.cellCount, sortedIdx = grid.sortedIdx;
+        final int width = grid.stencilWidth;
+        final int Mx = grid.getMx(), My = grid.getMy();
+        final double[] sortedX = grid.sortedX, sortedY = grid.sortedY;
+
+        // Se reparte la grilla en franjas de filas de celdas, contiguas en sortedIdx
+        parallelFor(My, (fromRow, toRow) -> {
+            int from = cellStart[fromRow * Mx];
+            int to = toRow == My ? p.N : cellStart[toRow * Mx];
+            int[] hits = hitsBuffer.get();
+            long tested = 0, accepted = 0;
+
+            for (int q1 = from; q1 < to; q1++) {
+                int p1 = sortedIdx[q1];
+                int cellIndex = grid.cellOf[p1];
+                double x1 = sortedX[q1], y1 = sortedY[q1];
+
+                for (int k = cellIndex * width; k < (cellIndex + 1) * width; k++) {
+                    int neighborIndex = stencil[k];
+                    if (neighborIndex == CellGrid.NOT_FOUND) continue;
+
+                    int start = cellStart[neighborIndex], end = start + cellCount[neighborIndex];
+                    if (hits.length < end - start) hits = new int[Math.max(2 * hits.length, end - start)];
+                    int n = distanceKernel.findHits(x1, y1, sortedX, sortedY, start, end, p.Lx, p.Ly, r2, hits);
+                    tested += end - start;
+
+                    for (int h = 0; h < n; h++) {
+                        if (hits[h] == q1) continue;
+                        particles.registerCloseParticle(p1, sortedIdx[hits[h]]);
+                        accepted++;
                     }
                 }
+                tested--;   // la propia partícula
             }
+            hitsBuffer.set(hits);
+            pairsTested.add(tested);
+            pairsAccepted.add(accepted);
+        });
+    }
 
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+
+    // Divide [0, n) en bloques y los ejecuta en el pool, esperando a que terminen todos
+    private void parallelFor(int n, RangeTask task) {
+        int chunks = Math.min(n, threads * 4);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int from = (int) ((long) n * c / chunks);
+            int to = (int) ((long) n * (c + 1) / chunks);
+            tasks.add(pool.submit(() -> task.run(from, to)));
+        }
+        for (ForkJoinTask<?> t : tasks) {
+            t.join();
         }
+    }
 
+    /* -------------------- TOPOLOGICAL FIND NEIGHBORS METHODS  -------------------- */
+
+    private void findTopologicalNeighbors() {
+        if (pool != null) {
+            parallelFor(p.N, this::findTopologicalNeighbors);
+        } else {
+            findTopologicalNeighbors(0, p.N);
+        }
+    }
+
+    private void findTopologicalNeighbors(int from, int to) {
+        final int k = topological.getK();
+        int[] buffer = neighborsBuffer.get();
+        if (buffer.length < k) buffer = new int[k];
+        long tested = 0;
+
+        for (int p1 = from; p1 < to; p1++) {
+            tested += topological.find(particles, p1, buffer);
+            for (int h = 0; h < k; h++) {
+                particles.registerCloseParticle(p1, buffer[h]);
+            }
+        }
+        neighborsBuffer.set(buffer);
+        pairsTested.add(tested);
+        pairsAccepted.add((long) (to - from) * k);
     }
 
     /* -------------------- RUN METHODS  -------------------- */
 
+    private interface StepKernel {
+        void advance();
+    }
+
+    // Escribe el paso inicial, avanza hasta p.steps y guarda cada saveEvery.
+    // Una corrida retomada sigue desde el paso del checkpoint
+    private void run(String mode) throws IOException {
+        try {
+            start(mode);
+            while (advance()) { }
+        } finally {
+            closeRun();
+        }
+        finish();
+    }
+
+    // start/advance/closeRun/finish son las etapas de run() por separado, para que ReplicaBatch
+    // avance varias simulaciones a la par
+    void start(String mode) throws IOException {
+        this.mode = mode;
+        this.stepKernel = kernel(mode);
+        writer = p.writeTrajectory ? openWriter() : null;
+        metrics.start(step, writer);
+
+        if (fresh) {
+            writeStep(step);
+            observe(step);
+        }
+    }
+
+    // Un paso con escritura, observables y checkpoint; false si la corrida ya había terminado
+    boolean advance() throws IOException {
+        if (step >= p.steps || isDone()) return false;
+
+        int t = ++step;
+        metrics.beginStep();
+        reorderIfDue(t);        // el reordenamiento cuenta como tiempo de grilla
+        stepKernel.advance();
+        if (t % p.saveEvery == 0) writeStep(t);
+        metrics.lap(SimulationMetrics.Phase.WRITE);
+        observe(t);
+        if (p.checkpointEvery > 0 && t % p.checkpointEvery == 0) writeCheckpoint();
+        metrics.endStep(t, polarization.getLast());
+        return true;
+    }
+
+    // Reordena el store por curva de Morton: las partículas cercanas quedan contiguas en memoria y el
+    // recorrido de vecinos deja de saltar por todo el arreglo. Los ids externos no cambian
+    private void reorderIfDue(int t) {
+        if (p.reorderEvery <= 0 || (t - 1) % p.reorderEvery != 0) return;
+        grid.build(particles);
+        ((ArrayParticleStore) particles).permute(grid.mortonOrder());
+        if (verlet != null) verlet.invalidate();
+    }
+
+    void closeRun() throws IOException {
+        metrics.stop();
+        shutdownPool();
+        stepKernel = null;
+        if (writer != null) writer.close();
+        for (Observable o : observables) o.close();
+    }
+
+    void finish() throws IOException {
+        // Checkpoint final para poder extender la corrida
+        if (p.checkpointEvery > 0 && step % p.checkpointEvery != 0) writeCheckpoint();
+        fresh = false;
+        if (p.atomicOutput && !simDir.equals(finalDir)) publish();
+    }
+
+    // Renombra el directorio temporal completo a su nombre final
+    private void publish() throws IOException {
+        try {
+            Files.move(simDir, finalDir, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(simDir, finalDir);
+        }
+        simDir = finalDir;
+    }
+
     public void runRandomNeighborsCIM() throws IOException {
-        writeStep(0);
-        computeAllCellNeighbors();
+        run("FVM");
+    }
+
+    public void runCIM() throws IOException {
+        run("CIM");
+    }
+
+    public void runBruteForce() throws IOException {
+        run("BRUTE_FORCE");
+    }
+
+    // Vicsek topológico: cada partícula se alinea con sus Params.topologicalK vecinos más cercanos
+    public void runTopological() throws IOException {
+        run("KNN");
+    }
 
-        for (int t = 1; t <= p.steps; t++) {
+    // Prepara el motor para avanzar de a un paso con step(), sin salida ni observables.
+    // Pensado para medir el costo por paso (ver benchmarks/); llamar a shutdown() al terminar
+    public void prepare(String mode) {
+        this.mode = mode;
+        this.stepKernel = kernel(mode);
+    }
+
+    public void step() {
+        if (stepKernel == null) throw new IllegalStateException("Falta llamar a prepare()");
+        step++;
+        metrics.beginStep();
+        reorderIfDue(step);
+        stepKernel.advance();
+    }
+
+    public void shutdown() {
+        shutdownPool();
+        stepKernel = null;
+    }
+
+    private StepKernel kernel(String mode) {
+        switch (mode) {
+            case "CIM": return cimKernel();
+            case "FVM": return randomNeighborsKernel();
+            case "BRUTE_FORCE": return bruteForceKernel();
+            case "KNN": return topologicalKernel();
+            default: throw new IllegalArgumentException("Modo desconocido: " + mode);
+        }
+    }
+
+    private StepKernel randomNeighborsKernel() {
+        grid.computeAllStencil();
+        // Con el rng compartido el sorteo depende del orden, solo se paraleliza con counterRng
+        if (threads > 1 && p.counterRng) pool = new ForkJoinPool(threads);
+
+        return () -> {
             initializeGrid();
+            metrics.lap(SimulationMetrics.Phase.GRID);
             findRandomNeighborsCIM();
+            metrics.lap(SimulationMetrics.Phase.SEARCH);
             updateParticlesWithRandomNeighbor();
-            if (t % p.saveEvery == 0) writeStep(t);
-        }
+            metrics.lap(SimulationMetrics.Phase.UPDATE);
+        };
     }
 
-    public void runCIM() throws IOException {
-        writeStep(0);
-        computeTopCornerCellNeighbors();
+    private StepKernel cimKernel() {
+        if (p.verletSkin > 0) {
+            return verletKernel();
+        }
+        // Con counterRng se usa siempre el motor por recolección para que el resultado no dependa de los hilos
+        if (threads > 1 || p.counterRng) {
+            return parallelCimKernel();
+        }
 
-        for (int t = 1; t <= p.steps; t++) {
+        grid.computeTopCornerStencil();
+
+        return () -> {
             initializeGrid();
+            metrics.lap(SimulationMetrics.Phase.GRID);
             findNeighborsCIM();
+            metrics.lap(SimulationMetrics.Phase.SEARCH);
             updateParticles();
-            if (t % p.saveEvery == 0) writeStep(t);
-        }
+            metrics.lap(SimulationMetrics.Phase.UPDATE);
+        };
     }
 
-    public void runBruteForce() throws IOException {
-        writeStep(0);
+    // Misma actualización que el CIM serie, pero los vecinos salen de filtrar la lista de Verlet.
+    // Siempre en serie: la lista es de medio stencil y escribe en ambos acumuladores de cada par
+    private StepKernel verletKernel() {
+        verlet = new VerletList(p);
+
+        return () -> {
+            if (verlet.needsRebuild(particles)) verlet.build(particles);
+            metrics.lap(SimulationMetrics.Phase.GRID);
+            findNeighborsVerlet();
+            metrics.lap(SimulationMetrics.Phase.SEARCH);
+            updateParticles();
+            metrics.lap(SimulationMetrics.Phase.UPDATE);
+        };
+    }
+
+    private StepKernel parallelCimKernel() {
+        grid.computeAllStencil();
+        noiseBuffer = new double[p.N];
+        pool = new ForkJoinPool(threads);
+
+        return () -> {
+            initializeGrid();
+            metrics.lap(SimulationMetrics.Phase.GRID);
+            findNeighborsParallelCIM();
+            metrics.lap(SimulationMetrics.Phase.SEARCH);
+            updateParticlesParallel();
+            metrics.lap(SimulationMetrics.Phase.UPDATE);
+        };
+    }
+
+    // Recolección como el CIM paralelo: cada partícula busca sus k vecinos y solo escribe su acumulador,
+    // así que en serie y en paralelo da lo mismo
+    private StepKernel topologicalKernel() {
+        topological = new TopologicalSearch(p, distanceKernel);
+        noiseBuffer = new double[p.N];
+        if (threads > 1) pool = new ForkJoinPool(threads);
+
+        return () -> {
+            topological.build(particles);
+            metrics.lap(SimulationMetrics.Phase.GRID);
+            findTopologicalNeighbors();
+            metrics.lap(SimulationMetrics.Phase.SEARCH);
+            if (pool != null) updateParticlesParallel(); else updateParticles();
+            metrics.lap(SimulationMetrics.Phase.UPDATE);
+        };
+    }
 
+    private void shutdownPool() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private StepKernel bruteForceKernel() {
         double[] newTheta = new double[p.N];
         double r2 = p.r * p.r;
+        // Copias contiguas de posiciones y direcciones para que el kernel recorra todas las candidatas de una vez
+        double[] xs = new double[p.N], ys = new double[p.N], cs = new double[p.N], sn = new double[p.N];
+        int[] hits = new int[p.N];
+
+        return () -> {
+            for (int j = 0; j < p.N; j++) {
+                xs[j] = particles.getX(j);
+                ys[j] = particles.getY(j);
+                cs[j] = particles.cos(j);
+                sn[j] = particles.sin(j);
+            }
 
-        for (int t = 1; t <= p.steps; t++) {
+            long accepted = 0;
             // Actualizar ángulos
             for (int i = 0; i < p.N; i++) {
                 double c = 0.0, s = 0.0, count = 0;
-                Particle pi = particles.get(i);
-
-                // Buscamos los vecinos dentro del radio r
-                for (int j = 0; j < p.N; j++) {
-                    Particle pj = particles.get(j);
-                    double dx = minImage(pj.getX() - pi.getX(), p.L);
-                    double dy = minImage(pj.getY() - pi.getY(), p.L);
-
-                    // Si está dentro del radio de interacción, contribuye al promedio
-                    if (dx*dx + dy*dy <= r2) {
-                        c += Math.cos(pj.getTheta());
-                        s += Math.sin(pj.getTheta());
-                        count++;
-                    }
+
+                // Buscamos los vecinos dentro del radio r; contribuyen al promedio en orden de id
+                int n = distanceKernel.findHits(xs[i], ys[i], xs, ys, 0, p.N, p.Lx, p.Ly, r2, hits);
+                for (int h = 0; h < n; h++) {
+                    int j = hits[h];
+                    c += cs[j];
+                    s += sn[j];
+                    count++;
                 }
 
                 // Calculamos el ángulo promedio de vecinos
                 // Si no hay vecinos, usamos el ángulo actual
-                double meanAngle = (count > 0) ? Math.atan2(s/ count, c/ count) : pi.getTheta();
+                accepted += (long) count - 1;   // sin contarse a sí misma
+                if (p.unitHeading) {
+                    // Los vecinos se leen de las copias, así que se puede actualizar en el momento
+                    turnUnit(particles, i, c, s, noise(i));
+                    continue;
+                }
+                double meanAngle = (count > 0) ? Math.atan2(s/ count, c/ count) : particles.getTheta(i);
 
                 // Añadimos ruido al ángulo promedio en el rango [-eta/2, eta/2]
-                double noise = rng.nextDouble() * p.eta - (p.eta / 2.0);
-
-                newTheta[i] = wrapAngle(meanAngle + noise);
+                newTheta[i] = wrapAngle(meanAngle + noise(i));
             }
+            pairsTested.add((long) p.N * (p.N - 1));
+            pairsAccepted.add(accepted);
+            metrics.lap(SimulationMetrics.Phase.SEARCH);     // incluye el cálculo de las nuevas direcciones
 
             // Actualizar posiciones de las partículas
             for (int i = 0; i < p.N; i++) {
-                Particle pi = particles.get(i);
-                pi.setTheta(newTheta[i]);
-                pi.setX(wrapPos(pi.getX() + p.v * Math.cos(pi.getTheta()), p.L));;
-                pi.setY(wrapPos(pi.getY() + p.v * Math.sin(pi.getTheta()), p.L));;
+                if (!p.unitHeading) particles.setTheta(i, newTheta[i]);
+                p.boundary.move(particles, i, p);
             }
-
-            if (t % p.saveEvery == 0) writeStep(t);
-        }
+            metrics.lap(SimulationMetrics.Phase.UPDATE);
+        };
     }
 
     /* -------------------- WRITE METHODS  -------------------- */
 
+    private TrajectoryWriter openWriter() throws IOException {
+        return openWriter(simDir, p, fresh ? -1 : step);
+    }
+
+    // resumeStep >= 0 continúa una trayectoria binaria existente
+    static TrajectoryWriter openWriter(Path simDir, Params p, int resumeStep) throws IOException {
+        TrajectoryWriter w = p.binaryOutput ? new BinaryTrajectoryWriter(simDir, p, resumeStep) : new CsvTrajectoryWriter(simDir, p);
+        if (p.writeBuffers > 0) {
+            w = new AsyncTrajectoryWriter(w, p.N, p.writeBuffers, p.dropWhenFull);
+        }
+        return w;
+    }
+
     private void writeStep(int t) throws IOException {
-        Path stepsDir = simDir.resolve("steps");
-        Files.createDirectories(stepsDir);
+        if (writer != null) writer.writeStep(t, particles);
+    }
 
-        Path file = stepsDir.resolve(String.format("step_%04d.csv", t));
+    private void observe(int t) throws IOException {
+        for (Observable o : observables) {
+            o.observe(t, particles);
+        }
+    }
 
-        try (BufferedWriter bw = Files.newBufferedWriter(file)) {
-            bw.write("id,x,y,vx,vy\n");
-            for (int i = 0; i < particles.size(); i++) {
-                Particle ptl = particles.get(i);
-                bw.write(String.format(Locale.US, "%d,%.6f,%.6f,%.6f,%.6f%n",
-                        i, ptl.getX(), ptl.getY(), ptl.vx(p.v), ptl.vy(p.v)));
-            }
+    private boolean isDone() {
+        for (Observable o : observables) {
+            if (o.isDone()) return true;
         }
+        return false;
     }
 
+    public void addObservable(Observable observable) { observables.add(observable); }
+
+    // Contadores y tiempos por etapa; también registrado como MBean mientras corre
+    public SimulationMetrics getMetrics() { return metrics; }
+
+    // null si p.autoStop es false
+    public StationaryDetector getStationaryDetector() { return stationary; }
+
+    // Siempre presente; con p.writePolarization en false no escribe polarization.csv
+    public PolarizationObservable getPolarization() { return polarization; }
+
+    // Directorio donde se escribe la corrida (el temporal mientras corre en modo atómico)
     public Path getSimDir() { return simDir; }
 
+    /* -------------------- NOISE METHODS  -------------------- */
+
+    // Ruido uniforme en [-eta/2, eta/2) para la partícula i en el paso actual
+    private double noise(int i) {
+        if (p.counterRng) return counterNoise(p, counterSeed, step, particles.getId(i));
+        return rng.nextDouble() * p.eta - (p.eta / 2.0);
+    }
+
+    static double counterNoise(Params p, long counterSeed, int step, long id) {
+        return CounterRng.uniform(counterSeed, step, id, CounterRng.NOISE) * p.eta - (p.eta / 2.0);
+    }
+
     /* -------------------- DISTANCE METHODS  -------------------- */
 
+    // |d| entre las imágenes periódicas más cercanas, sin ramas; mismo cálculo que DistanceKernel.
+    // Con L infinito queda |d|, la distancia sin bordes periódicos
     private static double minImage(double d, double L) {
-        d = d - Math.rint(d / L) * L;
-        return d;
+        d = Math.abs(d);
+        return Math.min(d, L - d);
     }
 
     // Asegura que la posición esté en [0, L)
-    private static double wrapPos(double a, double L) {
+    static double wrapPos(double a, double L) {
         a = a % L;
         if (a < 0) a += L;
         return a;
     }
 
     // Asegura que el ángulo esté en [0, 2π)
-    private static double wrapAngle(double ang) {
+    static double wrapAngle(double ang) {
         double twoPi = 2.0 * Math.PI;
         ang = ang % twoPi;
         if (ang < 0) ang += twoPi;
         return ang;
     }
 
-    private double calculateDistance(Particle pj, Particle pi) {
-        double dx = minImage(pj.getX() - pi.getX(), p.L);
-        double dy = minImage(pj.getY() - pi.getY(), p.L);
+    private double calculateDistance(int j, int i) {
+        double dx = minImage(particles.getX(j) - particles.getX(i), periodX);
+        double dy = minImage(particles.getY(j) - particles.getY(i), periodY);
         return dx*dx + dy*dy;
     }
 
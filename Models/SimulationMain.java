@@ -1,9 +1,7 @@
 package Models;
 
 import java.io.*;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Locale;
 
 public class SimulationMain {
@@ -11,6 +9,7 @@ public class SimulationMain {
         Simulation sim = new Simulation(p);
         if (useBruteForce) sim.runBruteForce(); else sim.runCIM();
         System.out.println("Simulación " + (useBruteForce? "BruteForce":"CIM") + " terminada en: " + sim.getSimDir().toAbsolutePath());
+        printPairStats(sim);
         p.createCSVFile();
         return sim.getSimDir().toAbsolutePath();
     }
@@ -19,39 +18,53 @@ public class SimulationMain {
         Simulation sim = new Simulation(p);
         sim.runRandomNeighborsCIM();
         System.out.println("Simulación d) terminada en: " + sim.getSimDir().toAbsolutePath());
+        printPairStats(sim);
         p.createCSVFile();
         return sim.getSimDir().toAbsolutePath();
     }
 
-    public static void runMultipleSimulations(int n_runs, double[] eta_values, double[] v_values, double[] L,int[] N, Integer steps, boolean runFVM) throws IOException {
-        for (double eta : eta_values) {
-            for (double v : v_values) {
-                for (double l : L) {
-                    for (int n : N) {
+    // Eficiencia de la búsqueda: qué fracción de las distancias evaluadas resultó ser vecina
+    private static void printPairStats(Simulation sim) {
+        long tested = sim.getPairsTested(), accepted = sim.getPairsAccepted();
+        System.out.printf("M = %dx%d, pares evaluados: %d, dentro de r: %d (%.1f%%)%n",
+                sim.getMx(), sim.getMy(), tested, accepted, tested == 0 ? 0.0 : 100.0 * accepted / tested);
+    }
+
+    public static Path runTopologicalSimulation(Params p) throws IOException {
+        Simulation sim = new Simulation(p);
+        sim.runTopological();
+        System.out.println("Simulación topológica (k = " + Math.min(p.topologicalK, p.N - 1) + ") terminada en: " + sim.getSimDir().toAbsolutePath());
+        printPairStats(sim);
+        p.createCSVFile();
+        return sim.getSimDir().toAbsolutePath();
+    }
 
-                        String outDir = "outputs/eta" + eta + "_v" + v + "_d" + n/(l*l);
-                        Params p = new Params(eta, v, l, n, outDir,steps);
+    // replicas corridas de p con semillas consecutivas avanzadas a la par; v_a estacionario desde transientSteps
+    public static ReplicaBatch runReplicaBatch(Params p, int replicas, int transientSteps, boolean runFVM) throws IOException {
+        ReplicaBatch batch = new ReplicaBatch(p, replicas, transientSteps);
+        batch.run(runFVM ? "FVM" : "CIM");
+        p.createCSVFile();
+        System.out.printf(Locale.US, "Réplicas en %s: v_a = %.4f ± %.4f%n", p.getOutDir(), batch.getMean(), batch.getStandardError());
+        return batch;
+    }
 
-                        for (int runs = 0; runs < n_runs; runs++) {
-                            Simulation sim = new Simulation(p);
-                            if (runFVM) {
-                                sim.runRandomNeighborsCIM();
-                            } else {
-                                sim.runCIM();
-                            }
-                            System.out.println("Simulación " + runs + " terminada en: " + sim.getSimDir().toAbsolutePath());
-                        }
+    // CIM repartido en `workers` procesos locales por franjas de la grilla (necesita counterRng y semilla)
+    public static Path runDistributedSimulation(Params p, int workers) throws IOException {
+        DistributedSimulation sim = new DistributedSimulation(p, workers);
+        sim.runCIM();
+        System.out.println("Simulación CIM en " + workers + " procesos terminada en: " + sim.getSimDir().toAbsolutePath());
+        p.createCSVFile();
+        return sim.getSimDir().toAbsolutePath();
+    }
 
-                        // Guardar params
-                        try (BufferedWriter bw = Files.newBufferedWriter(Paths.get(outDir).resolve("params.csv"))) {
-                            bw.write("N,L,rho,v,eta,r,steps,save_every\n");
-                            bw.write(String.format(Locale.US, "%d,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d\n", n, l, n / (l*l), v, eta, p.r, p.steps, p.saveEvery));
-                        }
-                    }
-                }
-            }
+    // Las corridas ya terminadas (mismos parámetros y semilla) se saltean; ⟨v_a⟩ ± σ por combinación
+    // queda en outputs/sweep_summary.csv, armado desde el log sin leer las simulaciones
+    public static void runMultipleSimulations(int n_runs, double[] eta_values, double[] v_values, double[] L,int[] N, Integer steps, boolean runFVM) throws IOException {
+        try (SweepStore store = new SweepStore()) {
+            SweepExecutor executor = new SweepExecutor(0, store, SweepExecutor.HALF_STEPS);
+            executor.run(SweepExecutor.expand(n_runs, eta_values, v_values, L, N, steps, runFVM));
+            store.writeSummaryCSV(Path.of("outputs", "sweep_summary.csv"));
         }
-
     }
 
     public static void main(String[] args) throws IOException {
@@ -0,0 +1,249 @@
+package Models;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas en vivo de una Simulation: ritmo, pares evaluados/aceptados, tiempo de cada etapa del paso
+ * (grilla, búsqueda de vecinos, actualización, escritura), bytes escritos, GC y v_a actual.
+ * Mientras corre se registra como MBean Models:type=Simulation,name="sim_XXXX" (jconsole, VisualVM), y con
+ * Params.logEverySeconds > 0 imprime una línea por intervalo con lo que pasó en ese intervalo. Cada paso
+ * emite además un SimulationStepEvent de JFR.
+ * Los tiempos se toman con laps: la simulación llama a beginStep() y después lap(fase) al terminar cada etapa.
+ */
+public class SimulationMetrics implements SimulationMetricsMBean {
+    enum Phase { GRID, SEARCH, UPDATE, WRITE }
+
+    private static final long WINDOW_NANOS = 5_000_000_000L;   // ventana de los ritmos del MBean
+
+    private final String name;
+    private final Params p;
+    private final ParticleStore particles;
+    private final LongAdder pairsTested, pairsAccepted;
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+    private final long[] stepNanos = new long[Phase.values().length];     // del paso en curso, para el evento JFR
+    private long lapStart;
+    private SimulationStepEvent event;
+    private long eventTested, eventAccepted;
+
+    private volatile TrajectoryWriter writer;
+    private volatile long closedBytes;       // de corridas anteriores (p.ej. antes de retomar)
+    private volatile int step;
+    private volatile double polarization = Double.NaN;
+    private ObjectName objectName;
+
+    private volatile Snapshot windowStart, lastWindowStart, lastWindowEnd;
+    private Snapshot logStart;
+
+    SimulationMetrics(String name, Params p, ParticleStore particles, LongAdder pairsTested, LongAdder pairsAccepted) {
+        this.name = name;
+        this.p = p;
+        this.particles = particles;
+        this.pairsTested = pairsTested;
+        this.pairsAccepted = pairsAccepted;
+    }
+
+    // Estado de los contadores en un instante; los ritmos salen de la diferencia entre dos
+    private final class Snapshot {
+        final long nanos = System.nanoTime();
+        final int step = SimulationMetrics.this.step;
+        final long[] phases = new long[Phase.values().length];
+        final long tested = pairsTested.sum(), accepted = pairsAccepted.sum();
+        final long bytes = getBytesWritten();
+        final long gcCount = getGcCount(), gcMillis = getGcTimeMillis();
+
+        Snapshot() {
+            for (int k = 0; k < phases.length; k++) phases[k] = phaseNanos.get(k);
+        }
+    }
+
+    /* -------------------- CICLO DE LA CORRIDA  -------------------- */
+
+    void start(int step, TrajectoryWriter writer) {
+        this.step = step;
+        this.writer = writer;
+        windowStart = new Snapshot();
+        lastWindowStart = lastWindowEnd = null;
+        logStart = windowStart;
+        register();
+    }
+
+    void stop() {
+        unregister();
+        if (writer != null) {
+            closedBytes += writer.getBytesWritten();
+            writer = null;
+        }
+    }
+
+    private void register() {
+        try {
+            objectName = new ObjectName("Models:type=Simulation,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (JMException e) {
+            objectName = null;      // p.ej. ya hay otra con el mismo nombre en este JVM: se sigue sin MBean
+        }
+    }
+
+    private void unregister() {
+        if (objectName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException ignored) {
+        }
+        objectName = null;
+    }
+
+    /* -------------------- PASOS  -------------------- */
+
+    void beginStep() {
+        Arrays.fill(stepNanos, 0);
+        event = new SimulationStepEvent();
+        event.begin();
+        if (event.isEnabled()) {
+            eventTested = pairsTested.sum();
+            eventAccepted = pairsAccepted.sum();
+        }
+        lapStart = System.nanoTime();
+    }
+
+    // Suma a la etapa el tiempo desde el lap anterior
+    void lap(Phase phase) {
+        long now = System.nanoTime();
+        long elapsed = now - lapStart;
+        lapStart = now;
+        stepNanos[phase.ordinal()] += elapsed;
+        phaseNanos.addAndGet(phase.ordinal(), elapsed);
+    }
+
+    // va: v_a del paso, NaN si no se calculó
+    void endStep(int t, double va) {
+        step = t;
+        if (!Double.isNaN(va)) polarization = va;
+        commitEvent(t);
+
+        long now = System.nanoTime();
+        if (now - windowStart.nanos >= WINDOW_NANOS) {
+            Snapshot end = new Snapshot();
+            lastWindowStart = windowStart;
+            lastWindowEnd = end;
+            windowStart = end;
+        }
+        if (p.logEverySeconds > 0 && now - logStart.nanos >= p.logEverySeconds * 1_000_000_000L) {
+            Snapshot end = new Snapshot();
+            System.out.println(logLine(logStart, end, Double.isNaN(va) ? PolarizationObservable.polarization(particles) : va));
+            logStart = end;
+        }
+    }
+
+    private void commitEvent(int t) {
+        if (!event.shouldCommit()) return;
+        long tested = pairsTested.sum(), accepted = pairsAccepted.sum();
+        event.simulation = name;
+        event.step = t;
+        event.grid = stepNanos[Phase.GRID.ordinal()];
+        event.search = stepNanos[Phase.SEARCH.ordinal()];
+        event.update = stepNanos[Phase.UPDATE.ordinal()];
+        event.write = stepNanos[Phase.WRITE.ordinal()];
+        event.pairsTested = tested - eventTested;
+        event.pairsAccepted = accepted - eventAccepted;
+        event.polarization = polarization;
+        event.commit();
+    }
+
+    // Lo ocurrido entre from y to: ritmo, eficiencia de la búsqueda, reparto del tiempo, escritura y GC
+    private String logLine(Snapshot from, Snapshot to, double va) {
+        polarization = va;
+        double wall = Math.max(1, to.nanos - from.nanos);
+        double seconds = wall / 1e9;
+        double stepsPerSecond = (to.step - from.step) / seconds;
+        long tested = to.tested - from.tested, accepted = to.accepted - from.accepted;
+
+        double[] share = new double[Phase.values().length];
+        double others = 100.0;
+        for (int k = 0; k < share.length; k++) {
+            share[k] = 100.0 * (to.phases[k] - from.phases[k]) / wall;
+            others -= share[k];
+        }
+
+        return String.format(Locale.US,
+                "%s - paso %d/%d - %.1f pasos/s, %.3g partículas/s - pares dentro de r %.1f%% de %d"
+                        + " - grilla %.0f%%, vecinos %.0f%%, actualización %.0f%%, escritura %.0f%%, otros %.0f%%"
+                        + " - %.1f MB escritos - GC %d (%d ms) - v_a %.4f",
+                name, to.step, p.steps, stepsPerSecond, stepsPerSecond * p.N,
+                tested == 0 ? 0.0 : 100.0 * accepted / tested, tested,
+                share[0], share[1], share[2], share[3], Math.max(0.0, others),
+                (to.bytes - from.bytes) / 1e6, to.gcCount - from.gcCount, to.gcMillis - from.gcMillis, va);
+    }
+
+    /* -------------------- MBEAN  -------------------- */
+
+    @Override
+    public int getStep() { return step; }
+
+    @Override
+    public int getTotalSteps() { return p.steps; }
+
+    // Ritmo de la última ventana completa, o desde el comienzo si todavía no terminó ninguna
+    @Override
+    public double getStepsPerSecond() {
+        Snapshot from = lastWindowStart, to = lastWindowEnd;
+        if (to == null) {
+            from = windowStart;
+            if (from == null) return 0.0;
+            long nanos = System.nanoTime() - from.nanos;
+            return nanos <= 0 ? 0.0 : (step - from.step) / (nanos / 1e9);
+        }
+        return (to.step - from.step) / ((to.nanos - from.nanos) / 1e9);
+    }
+
+    @Override
+    public double getParticleUpdatesPerSecond() { return getStepsPerSecond() * p.N; }
+
+    @Override
+    public long getPairsTested() { return pairsTested.sum(); }
+
+    @Override
+    public long getPairsAccepted() { return pairsAccepted.sum(); }
+
+    @Override
+    public long getGridNanos() { return phaseNanos.get(Phase.GRID.ordinal()); }
+
+    @Override
+    public long getSearchNanos() { return phaseNanos.get(Phase.SEARCH.ordinal()); }
+
+    @Override
+    public long getUpdateNanos() { return phaseNanos.get(Phase.UPDATE.ordinal()); }
+
+    @Override
+    public long getWriteNanos() { return phaseNanos.get(Phase.WRITE.ordinal()); }
+
+    @Override
+    public long getBytesWritten() {
+        TrajectoryWriter w = writer;
+        return closedBytes + (w == null ? 0 : w.getBytesWritten());
+    }
+
+    @Override
+    public long getGcCount() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) n += Math.max(0, gc.getCollectionCount());
+        return n;
+    }
+
+    @Override
+    public long getGcTimeMillis() {
+        long ms = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) ms += Math.max(0, gc.getCollectionTime());
+        return ms;
+    }
+
+    @Override
+    public double getPolarization() { return polarization; }
+}
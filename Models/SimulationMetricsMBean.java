@@ -0,0 +1,38 @@
+package Models;
+
+/**
+ * Atributos JMX de SimulationMetrics. Los ritmos son de la última ventana de unos segundos; los tiempos por
+ * etapa y los contadores, acumulados desde que empezó la corrida.
+ */
+public interface SimulationMetricsMBean {
+
+    int getStep();
+
+    int getTotalSteps();
+
+    double getStepsPerSecond();
+
+    double getParticleUpdatesPerSecond();
+
+    long getPairsTested();
+
+    long getPairsAccepted();
+
+    long getGridNanos();
+
+    long getSearchNanos();
+
+    long getUpdateNanos();
+
+    long getWriteNanos();
+
+    long getBytesWritten();
+
+    // Del JVM completo, no solo de esta simulación
+    long getGcCount();
+
+    long getGcTimeMillis();
+
+    // NaN si todavía no se calculó (sin polarization.csv se calcula al imprimir la línea de log)
+    double getPolarization();
+}
@@ -0,0 +1,49 @@
+package Models;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento de Java Flight Recorder por paso de simulación, con el tiempo de cada etapa. La duración del evento
+ * es la del paso completo. Sin una grabación que lo habilite solo cuesta el chequeo de shouldCommit().
+ */
+@Name("Models.SimulationStep")
+@Label("Paso de simulación")
+@Category("Vicsek")
+@StackTrace(false)
+final class SimulationStepEvent extends Event {
+    @Label("Simulación")
+    String simulation;
+
+    @Label("Paso")
+    int step;
+
+    @Label("Grilla")
+    @Timespan(Timespan.NANOSECONDS)
+    long grid;
+
+    @Label("Búsqueda de vecinos")
+    @Timespan(Timespan.NANOSECONDS)
+    long search;
+
+    @Label("Actualización")
+    @Timespan(Timespan.NANOSECONDS)
+    long update;
+
+    @Label("Escritura")
+    @Timespan(Timespan.NANOSECONDS)
+    long write;
+
+    @Label("Pares evaluados")
+    long pairsTested;
+
+    @Label("Pares dentro de r")
+    long pairsAccepted;
+
+    @Label("v_a")
+    double polarization;
+}
@@ -0,0 +1,152 @@
+package Models;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Paso guardado de DistributedSimulation leído directo de los sockets de las franjas, sin armar el cuadro de N.
+ * Cada franja manda sus partículas en orden de id; rowIndex(k) las mezcla a medida que el writer las pide, así
+ * el coordinador solo guarda la partícula de cabeza de cada franja.
+ * Se recorre una sola vez y en orden, como hacen los TrajectoryWriter: rowIndex(k) con k = 0, 1, ... y después
+ * los getters de esa partícula. No se puede modificar.
+ */
+final class SlabFrameMerge implements ParticleStore {
+    private static final long NO_HEAD = Long.MAX_VALUE;
+
+    private final DataInputStream[] in;
+    private final int[] remaining;      // partículas de cada franja que siguen en el socket
+    private final long[] headId;        // NO_HEAD si la franja ya se terminó
+    private final double[] headX, headY, headTheta, headCos, headSin;
+    private int size, next;
+    private long id;
+    private double x, y, theta, cos, sin;
+
+    SlabFrameMerge(DataInputStream[] in) {
+        this.in = in;
+        int k = in.length;
+        this.remaining = new int[k];
+        this.headId = new long[k];
+        this.headX = new double[k];
+        this.headY = new double[k];
+        this.headTheta = new double[k];
+        this.headCos = new double[k];
+        this.headSin = new double[k];
+        Arrays.fill(headId, NO_HEAD);
+    }
+
+    // Empieza un paso: vuelve a cero antes de abrir las franjas
+    void clear() {
+        size = 0;
+        next = 0;
+    }
+
+    // Lee la cantidad de partículas de la franja w (SlabParticleStore.write) y su primera partícula
+    void open(int w) throws IOException {
+        remaining[w] = in[w].readInt();
+        size += remaining[w];
+        advance(w);
+    }
+
+    // El writer tiene que haber recorrido el paso entero, si no los sockets quedan a mitad de un paso
+    void finish() throws IOException {
+        if (next != size) throw new IOException("El paso se escribió a medias: " + next + " de " + size);
+    }
+
+    private void advance(int w) throws IOException {
+        if (remaining[w] == 0) {
+            headId[w] = NO_HEAD;
+            return;
+        }
+        DataInputStream s = in[w];
+        headId[w] = s.readLong();
+        headX[w] = s.readDouble();
+        headY[w] = s.readDouble();
+        headTheta[w] = s.readDouble();
+        headCos[w] = s.readDouble();
+        headSin[w] = s.readDouble();
+        remaining[w]--;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    // La k-ésima en orden de id: la menor cabeza entre las franjas
+    @Override
+    public int rowIndex(int k) {
+        if (k != next || k >= size) throw new IllegalStateException("Se recorre en orden: se esperaba " + next + " y llegó " + k);
+        int w = 0;
+        for (int j = 1; j < headId.length; j++) {
+            if (headId[j] < headId[w]) w = j;
+        }
+        id = headId[w];
+        x = headX[w];
+        y = headY[w];
+        theta = headTheta[w];
+        cos = headCos[w];
+        sin = headSin[w];
+        try {
+            advance(w);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        next++;
+        return k;
+    }
+
+    /* -------------------- PARTÍCULA ACTUAL  -------------------- */
+
+    @Override
+    public long getId(int i) { return id; }
+
+    @Override
+    public double getX(int i) { return x; }
+
+    @Override
+    public double getY(int i) { return y; }
+
+    @Override
+    public double getTheta(int i) {
+        if (Double.isNaN(theta)) theta = Particle.angleOf(cos, sin);
+        return theta;
+    }
+
+    @Override
+    public double cos(int i) { return cos; }
+
+    @Override
+    public double sin(int i) { return sin; }
+
+    /* -------------------- SOLO LECTURA  -------------------- */
+
+    @Override
+    public void setX(int i, double x) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public void setY(int i, double y) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public void setTheta(int i, double theta) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public void setHeading(int i, double cos, double sin) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public void registerCloseParticle(int i, int j) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public double getMeanAngle(int i) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public double sumCos(int i) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public double sumSin(int i) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public boolean hasCloseParticles(int i) { throw new UnsupportedOperationException(); }
+
+    @Override
+    public void resetMeanAngle(int i) { throw new UnsupportedOperationException(); }
+}
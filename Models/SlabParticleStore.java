@@ -0,0 +1,197 @@
+package Models;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Partículas de una franja de SlabWorker (las propias y los fantasmas de las filas vecinas) en arreglos que
+ * crecen según haga falta. La posición i no es el id: cada partícula lleva su id externo.
+ * Se escribe y se lee del socket con el estado completo, cos/sin incluidos, para que las cuentas de cada
+ * franja coincidan bit a bit con las de una corrida en un solo proceso.
+ */
+class SlabParticleStore implements ParticleStore {
+    private int n;
+    private long[] ids;
+    private double[] x, y, theta, cos, sin;
+    private double[] c, s;
+    private int[] count;
+
+    SlabParticleStore(int capacity) {
+        capacity = Math.max(capacity, 16);
+        this.ids = new long[capacity];
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.theta = new double[capacity];
+        this.cos = new double[capacity];
+        this.sin = new double[capacity];
+        this.c = new double[capacity];
+        this.s = new double[capacity];
+        this.count = new int[capacity];
+    }
+
+    @Override
+    public int size() { return n; }
+
+    void clear() { n = 0; }
+
+    void add(long id, double x, double y, double theta, double cos, double sin) {
+        if (n == ids.length) grow();
+        this.ids[n] = id;
+        this.x[n] = x;
+        this.y[n] = y;
+        this.theta[n] = theta;
+        this.cos[n] = cos;
+        this.sin[n] = sin;
+        this.c[n] = 0.0;
+        this.s[n] = 0.0;
+        this.count[n] = 0;
+        n++;
+    }
+
+    void add(SlabParticleStore o, int i) {
+        add(o.ids[i], o.x[i], o.y[i], o.theta[i], o.cos[i], o.sin[i]);
+    }
+
+    void addAll(SlabParticleStore o) {
+        for (int i = 0; i < o.n; i++) add(o, i);
+    }
+
+    private void grow() {
+        int capacity = 2 * ids.length;
+        ids = Arrays.copyOf(ids, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        theta = Arrays.copyOf(theta, capacity);
+        cos = Arrays.copyOf(cos, capacity);
+        sin = Arrays.copyOf(sin, capacity);
+        c = Arrays.copyOf(c, capacity);
+        s = Arrays.copyOf(s, capacity);
+        count = Arrays.copyOf(count, capacity);
+    }
+
+    // Inserción: se usa para los inmigrantes de un paso, que son pocos
+    void sortById() {
+        for (int i = 1; i < n; i++) {
+            for (int j = i; j > 0 && ids[j - 1] > ids[j]; j--) swap(j - 1, j);
+        }
+    }
+
+    private void swap(int i, int j) {
+        long id = ids[i]; ids[i] = ids[j]; ids[j] = id;
+        double t;
+        t = x[i]; x[i] = x[j]; x[j] = t;
+        t = y[i]; y[i] = y[j]; y[j] = t;
+        t = theta[i]; theta[i] = theta[j]; theta[j] = t;
+        t = cos[i]; cos[i] = cos[j]; cos[j] = t;
+        t = sin[i]; sin[i] = sin[j]; sin[j] = t;
+    }
+
+    // out = a ∪ b en orden de id, con a y b ya ordenados (los acumuladores quedan en cero)
+    static void merge(SlabParticleStore a, SlabParticleStore b, SlabParticleStore out) {
+        out.clear();
+        int i = 0, j = 0;
+        while (i < a.n || j < b.n) {
+            if (j == b.n || (i < a.n && a.ids[i] < b.ids[j])) out.add(a, i++);
+            else out.add(b, j++);
+        }
+    }
+
+    /* -------------------- SOCKET  -------------------- */
+
+    void write(DataOutput out) throws IOException {
+        write(out, 0, n);
+    }
+
+    void write(DataOutput out, int from, int to) throws IOException {
+        out.writeInt(to - from);
+        for (int i = from; i < to; i++) {
+            out.writeLong(ids[i]);
+            out.writeDouble(x[i]);
+            out.writeDouble(y[i]);
+            out.writeDouble(theta[i]);
+            out.writeDouble(cos[i]);
+            out.writeDouble(sin[i]);
+        }
+    }
+
+    // Agrega al final las partículas leídas
+    void read(DataInput in) throws IOException {
+        int m = in.readInt();
+        for (int k = 0; k < m; k++) {
+            add(in.readLong(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+        }
+    }
+
+    /* -------------------- PARTICLE STORE  -------------------- */
+
+    @Override
+    public double getX(int i) { return x[i]; }
+
+    @Override
+    public double getY(int i) { return y[i]; }
+
+    @Override
+    public long getId(int i) { return ids[i]; }
+
+    @Override
+    public double getTheta(int i) {
+        if (Double.isNaN(theta[i])) theta[i] = Particle.angleOf(cos[i], sin[i]);
+        return theta[i];
+    }
+
+    @Override
+    public double cos(int i) { return cos[i]; }
+
+    @Override
+    public double sin(int i) { return sin[i]; }
+
+    @Override
+    public void setX(int i, double x) { this.x[i] = x; }
+
+    @Override
+    public void setY(int i, double y) { this.y[i] = y; }
+
+    @Override
+    public void setTheta(int i, double theta) {
+        this.theta[i] = theta;
+        this.cos[i] = Math.cos(theta);
+        this.sin[i] = Math.sin(theta);
+    }
+
+    @Override
+    public void setHeading(int i, double cos, double sin) {
+        this.theta[i] = Double.NaN;
+        this.cos[i] = cos;
+        this.sin[i] = sin;
+    }
+
+    @Override
+    public void registerCloseParticle(int i, int j) {
+        c[i] += cos[j];
+        s[i] += sin[j];
+        count[i] += 1;
+    }
+
+    @Override
+    public double sumCos(int i) { return c[i]; }
+
+    @Override
+    public double sumSin(int i) { return s[i]; }
+
+    @Override
+    public double getMeanAngle(int i) {
+        return Math.atan2(s[i] / count[i], c[i] / count[i]);
+    }
+
+    @Override
+    public boolean hasCloseParticles(int i) { return count[i] > 0; }
+
+    @Override
+    public void resetMeanAngle(int i) {
+        c[i] = 0.0;
+        s[i] = 0.0;
+        count[i] = 0;
+    }
+}
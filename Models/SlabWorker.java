@@ -0,0 +1,217 @@
+package Models;
+
+import java.io.*;
+import java.net.Socket;
+
+/**
+ * Proceso de una franja de DistributedSimulation. La grilla global de Mx x My celdas se corta en franjas de
+ * filas [firstRow(w), firstRow(w + 1)); el worker w guarda las partículas propias ordenadas por id y en cada paso:
+ *   1. manda al coordinador su primera y su última fila, y recibe las filas vecinas como fantasmas (halo de
+ *      una celda, de lado >= r);
+ *   2. recolecta vecinos y actualiza sus partículas igual que el CIM paralelo de Simulation (mismo stencil,
+ *      mismo orden de suma, ruido por contador según el id);
+ *   3. manda las que salieron de la franja, sus sumas de cos/sin para v_a y, si toca guardar, su estado;
+ *      recibe las que entraron.
+ * Se lanza como java Models.SlabWorker host puerto w K; los parámetros llegan por el socket.
+ */
+public final class SlabWorker {
+    private final Params p;
+    private final int workers, My;      // My: filas de celdas de la grilla global
+    private final int fromRow, toRow;
+    private final int[] ghostRows;      // filas vecinas de otras franjas (ninguna con una sola franja)
+    private final long counterSeed;
+    private final CellGrid grid;
+    private final DistanceKernel distanceKernel;
+
+    private final SlabParticleStore owned, next, local, immigrants;
+    private final SlabParticleStore[] emigrants;
+    private final SlabParticleStore firstRowOut, lastRowOut;
+    private int[] hits = new int[16];
+
+    SlabWorker(Params p, int index, int workers) {
+        this.p = p;
+        this.workers = workers;
+        this.My = p.cellsY();
+        this.fromRow = firstRow(index, workers, My);
+        this.toRow = firstRow(index + 1, workers, My);
+        this.ghostRows = ghostRows(index, workers, My);
+        this.counterSeed = p.seed;
+        // Solo las filas propias y las fantasma: la memoria de cada proceso es la de su franja, no la de N
+        int[] rows = windowRows(fromRow, toRow, ghostRows);
+        int expected = (int) ((long) p.N * (toRow - fromRow) / My) + 1;
+        this.grid = new CellGrid(p.cellsX(), My, p.Lx, p.Ly, (int) ((long) p.N * rows.length / My) + 1, true,
+                workers == 1 ? null : rows);
+        this.distanceKernel = p.vectorDistance ? DistanceKernel.best() : DistanceKernel.scalar();
+        grid.computeAllStencil();
+
+        this.owned = new SlabParticleStore(expected);
+        this.next = new SlabParticleStore(expected);
+        this.local = new SlabParticleStore(expected);
+        this.immigrants = new SlabParticleStore(16);
+        this.emigrants = new SlabParticleStore[workers];
+        for (int w = 0; w < workers; w++) emigrants[w] = new SlabParticleStore(16);
+        this.firstRowOut = new SlabParticleStore(16);
+        this.lastRowOut = new SlabParticleStore(16);
+    }
+
+    /* -------------------- FRANJAS  -------------------- */
+
+    // Primera fila de la franja w (firstRow(K) = M)
+    static int firstRow(int w, int workers, int M) {
+        return (int) ((long) w * M / workers);
+    }
+
+    // Franja que contiene la fila row
+    static int owner(int row, int workers, int M) {
+        return (int) (((long) (row + 1) * workers - 1) / M);
+    }
+
+    // Filas de otras franjas que toca el stencil 3x3 de la franja w: la anterior y la siguiente (periódicas)
+    static int[] ghostRows(int w, int workers, int M) {
+        if (workers == 1) return new int[0];
+        int below = (firstRow(w, workers, M) - 1 + M) % M;
+        int above = firstRow(w + 1, workers, M) % M;
+        return below == above ? new int[]{below} : new int[]{below, above};
+    }
+
+    // Filas de la grilla de la franja: las propias y después las fantasma
+    static int[] windowRows(int fromRow, int toRow, int[] ghostRows) {
+        int[] rows = new int[toRow - fromRow + ghostRows.length];
+        for (int row = fromRow; row < toRow; row++) rows[row - fromRow] = row;
+        System.arraycopy(ghostRows, 0, rows, toRow - fromRow, ghostRows.length);
+        return rows;
+    }
+
+    /* -------------------- PASOS  -------------------- */
+
+    void run(DataInputStream in, DataOutputStream out) throws IOException {
+        generateParticles();
+        report(0, owned, owned.size(), out);
+        out.flush();
+
+        for (int t = 1; t <= p.steps; t++) {
+            exchangeHalo(in, out);
+            step(t);
+            migrate(t, in, out);
+        }
+    }
+
+    // Mismo estado inicial que Simulation con counterRng: cada worker sortea todos los ids y se queda con los suyos
+    private void generateParticles() {
+        for (int i = 0; i < p.N; i++) {
+            double x = CounterRng.uniform(counterSeed, 0, i, CounterRng.INIT_X) * p.Lx;
+            double y = CounterRng.uniform(counterSeed, 0, i, CounterRng.INIT_Y) * p.Ly;
+            double theta = CounterRng.uniform(counterSeed, 0, i, CounterRng.INIT_THETA) * 2.0 * Math.PI;
+            if (!ownsRow(grid.rowOf(y))) continue;
+            owned.add(i, x, y, theta, Math.cos(theta), Math.sin(theta));
+        }
+    }
+
+    private boolean ownsRow(int row) {
+        return row >= fromRow && row < toRow;
+    }
+
+    private void exchangeHalo(DataInputStream in, DataOutputStream out) throws IOException {
+        firstRowOut.clear();
+        lastRowOut.clear();
+        for (int i = 0; i < owned.size(); i++) {
+            int row = grid.rowOf(owned.getY(i));
+            if (row == fromRow) firstRowOut.add(owned, i);
+            if (row == toRow - 1) lastRowOut.add(owned, i);
+        }
+        firstRowOut.write(out);
+        lastRowOut.write(out);
+        out.flush();
+
+        // Propias primero y después cada fila fantasma: dentro de una celda quedan en orden de id
+        local.clear();
+        local.addAll(owned);
+        for (int k = 0; k < ghostRows.length; k++) local.read(in);
+    }
+
+    // Recolección del CIM paralelo (Simulation.findNeighborsParallelCIM) sobre las partículas propias
+    private void step(int t) {
+        // Primero build(): si local creció, la grilla cambia sus arreglos de partículas
+        grid.build(local);
+        final double r2 = p.r * p.r;
+        final int[] stencil = grid.stencil, cellStart = grid.cellStart, cellCount = grid.cellCount, sortedIdx = grid.sortedIdx;
+        final int width = grid.stencilWidth;
+        final double[] sortedX = grid.sortedX, sortedY = grid.sortedY;
+        int n = owned.size();
+
+        for (int i = 0; i < n; i++) {
+            int q1 = grid.sortedPos[i];
+            int cellIndex = grid.cellOf[i];
+            double x1 = sortedX[q1], y1 = sortedY[q1];
+
+            for (int k = cellIndex * width; k < (cellIndex + 1) * width; k++) {
+                int neighborIndex = stencil[k];
+                if (neighborIndex == CellGrid.NOT_FOUND) continue;
+
+                int start = cellStart[neighborIndex], end = start + cellCount[neighborIndex];
+                if (hits.length < end - start) hits = new int[Math.max(2 * hits.length, end - start)];
+                int found = distanceKernel.findHits(x1, y1, sortedX, sortedY, start, end, p.Lx, p.Ly, r2, hits);
+
+                for (int h = 0; h < found; h++) {
+                    if (hits[h] == q1) continue;
+                    local.registerCloseParticle(i, sortedIdx[hits[h]]);
+                }
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            Simulation.updateParticle(local, p, i, Simulation.counterNoise(p, counterSeed, t, local.getId(i)));
+        }
+    }
+
+    private void migrate(int t, DataInputStream in, DataOutputStream out) throws IOException {
+        int n = owned.size();
+        next.clear();
+        for (SlabParticleStore e : emigrants) e.clear();
+        for (int i = 0; i < n; i++) {
+            int row = grid.rowOf(local.getY(i));
+            if (ownsRow(row)) next.add(local, i);
+            else emigrants[owner(row, workers, My)].add(local, i);
+        }
+
+        for (SlabParticleStore e : emigrants) e.write(out);
+        report(t, local, n, out);
+        out.flush();
+
+        // Las actualizadas están en local, así que owned se puede pisar
+        immigrants.clear();
+        immigrants.read(in);
+        immigrants.sortById();
+        SlabParticleStore.merge(next, immigrants, owned);
+    }
+
+    // Sumas de cos/sin de las propias (state[0, n), en orden de id) y, si el paso se guarda, su estado completo
+    private void report(int t, SlabParticleStore state, int n, DataOutputStream out) throws IOException {
+        double c = 0.0, s = 0.0;
+        for (int i = 0; i < n; i++) {
+            c += state.cos(i);
+            s += state.sin(i);
+        }
+        out.writeDouble(c);
+        out.writeDouble(s);
+        if (p.writeTrajectory && t % p.saveEvery == 0) state.write(out, 0, n);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int index = Integer.parseInt(args[2]);
+        int workers = Integer.parseInt(args[3]);
+
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(index);
+            out.flush();
+
+            Params p = Params.read(in);
+            new SlabWorker(p, index, workers).run(in, out);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package Models;
+
+import java.io.BufferedWriter;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Detecta el estado estacionario de v_a(t) y corta la corrida cuando ya juntó suficientes muestras independientes.
+ *
+ * Transitorio: v_a se promedia en ventanas de `window` pasos; la corrida es estacionaria cuando dos
+ * comparaciones seguidas de ventanas consecutivas difieren en menos de `tolerance`. El transitorio termina
+ * al comienzo de la primera de esas ventanas.
+ * Muestras independientes: con el método de batch means (BATCHES lotes) se estima 2τ = b·s_b² / s²,
+ * y n_eff = n / 2τ. Al llegar a `samples` muestras independientes isDone() pasa a ser true.
+ * Escribe stationary.csv con el resultado al cerrar.
+ */
+public class StationaryDetector implements Observable {
+    public static final String FILE_NAME = "stationary.csv";
+    private static final int BATCHES = 20;
+
+    private final Path file;
+    private final PolarizationObservable polarization;     // de donde se lee v_a(t), ya calculado en el paso
+    private final int window;
+    private final double tolerance;
+    private final int samples;
+
+    // Ventana en curso y promedio de la anterior
+    private double windowSum;
+    private int windowCount;
+    private double previousMean = Double.NaN;
+    private int previousStart;
+    private int agreements;
+
+    private int transient_ = -1;
+    private int firstStep = -1, lastStep;
+    // v_a desde el primer paso observado; las muestras estacionarias son values[offset .. n)
+    private double[] values = new double[1024];
+    private int n, offset;
+    private double tau = Double.NaN, nEff;
+    private boolean done;
+
+    // polarization tiene que observar cada paso antes que este detector
+    public StationaryDetector(Path simDir, PolarizationObservable polarization, int window, double tolerance, int samples) {
+        this.file = simDir.resolve(FILE_NAME);
+        this.polarization = polarization;
+        this.window = window;
+        this.tolerance = tolerance;
+        this.samples = samples;
+    }
+
+    @Override
+    public void observe(int t, ParticleStore particles) {
+        double va = polarization.getLast();
+        if (firstStep < 0) firstStep = t;
+        lastStep = t;
+
+        if (n == values.length) values = Arrays.copyOf(values, 2 * n);
+        values[n++] = va;
+
+        if (transient_ < 0) {
+            detectTransient(t, va);
+        } else if ((n - offset) % window == 0) {
+            estimateIndependentSamples();
+        }
+    }
+
+    private void detectTransient(int t, double va) {
+        if (windowCount == 0) previousStart = t;
+        windowSum += va;
+        windowCount++;
+        if (windowCount < window) return;
+
+        double mean = windowSum / windowCount;
+        agreements = Math.abs(mean - previousMean) < tolerance ? agreements + 1 : 0;
+        if (agreements == 2) {
+            // Las dos últimas ventanas ya son estacionarias
+            transient_ = previousStart - window;
+            offset = transient_ - firstStep;
+        }
+        previousMean = mean;
+        windowSum = 0;
+        windowCount = 0;
+    }
+
+    private void estimateIndependentSamples() {
+        int m = n - offset;
+        double mean = mean();
+        double var = variance(mean);
+
+        int b = m / BATCHES;
+        if (b == 0) return;
+        double batchVar = 0.0;
+        for (int k = 0; k < BATCHES; k++) {
+            double batchMean = 0.0;
+            for (int i = offset + k * b; i < offset + (k + 1) * b; i++) batchMean += values[i];
+            batchMean /= b;
+            batchVar += (batchMean - mean) * (batchMean - mean);
+        }
+        batchVar /= BATCHES - 1;
+
+        // v_a constante (p.ej. eta = 0 ya ordenado): todas las muestras son equivalentes
+        double twoTau = var > 0 ? Math.max(1.0, b * batchVar / var) : 1.0;
+        tau = twoTau / 2.0;
+        nEff = m / twoTau;
+        done = nEff >= samples;
+    }
+
+    // Media y varianza poblacional de las muestras estacionarias
+    private double mean() {
+        double sum = 0.0;
+        for (int i = offset; i < n; i++) sum += values[i];
+        return n > offset ? sum / (n - offset) : Double.NaN;
+    }
+
+    private double variance(double mean) {
+        double sum = 0.0;
+        for (int i = offset; i < n; i++) sum += (values[i] - mean) * (values[i] - mean);
+        return n > offset ? sum / (n - offset) : Double.NaN;
+    }
+
+    /* -------------------- CHECKPOINT  -------------------- */
+
+    // Estado de la detección (ventanas, muestras y estimación) para que una corrida retomada corte en el mismo paso
+    void writeState(DataOutput out) throws IOException {
+        out.writeDouble(windowSum);
+        out.writeInt(windowCount);
+        out.writeDouble(previousMean);
+        out.writeInt(previousStart);
+        out.writeInt(agreements);
+        out.writeInt(transient_);
+        out.writeInt(firstStep);
+        out.writeInt(lastStep);
+        out.writeInt(offset);
+        out.writeDouble(tau);
+        out.writeDouble(nEff);
+        out.writeBoolean(done);
+        out.writeInt(n);
+        for (int i = 0; i < n; i++) out.writeDouble(values[i]);
+    }
+
+    void readState(DataInput in) throws IOException {
+        windowSum = in.readDouble();
+        windowCount = in.readInt();
+        previousMean = in.readDouble();
+        previousStart = in.readInt();
+        agreements = in.readInt();
+        transient_ = in.readInt();
+        firstStep = in.readInt();
+        lastStep = in.readInt();
+        offset = in.readInt();
+        tau = in.readDouble();
+        nEff = in.readDouble();
+        done = in.readBoolean();
+        n = in.readInt();
+        values = new double[Math.max(1024, n)];
+        for (int i = 0; i < n; i++) values[i] = in.readDouble();
+    }
+
+    @Override
+    public boolean isDone() { return done; }
+
+    // Pasos hasta el estado estacionario, -1 si no se detectó
+    public int getTransientSteps() { return transient_; }
+
+    public double getIndependentSamples() { return nEff; }
+
+    @Override
+    public void close() throws IOException {
+        // Sin transitorio detectado no hay muestras estacionarias
+        if (transient_ < 0) offset = n;
+        double mean = mean();
+        double std = Math.sqrt(variance(mean));
+        double sem = nEff > 0 ? std / Math.sqrt(nEff) : Double.NaN;
+
+        try (BufferedWriter bw = Files.newBufferedWriter(file)) {
+            bw.write("transient_steps,stationary_steps,last_step,tau,n_eff,va_mean,va_std,va_sem,stopped_early\n");
+            bw.write(String.format(Locale.US, "%d,%d,%d,%.3f,%.3f,%.6f,%.6f,%.6f,%b\n",
+                    transient_, n - offset, lastStep, tau, nEff, mean, std, sem, done));
+        }
+    }
+}
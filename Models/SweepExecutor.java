@@ -0,0 +1,204 @@
+package Models;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ejecuta un barrido de parámetros: cada corrida es un trabajo independiente en un pool work-stealing.
+ * Los trabajos se lanzan de mayor a menor costo estimado para que los más largos no queden al final.
+ * Con un SweepStore se saltean las corridas que ya están en el log y cada corrida terminada agrega su
+ * v_a estacionario (promedio temporal desde transientSteps).
+ */
+public class SweepExecutor {
+
+    public static class Job {
+        final Params params;
+        final int run;
+        final String mode;      // CIM, FVM, KNN o BF (ver runJob)
+
+        public Job(Params params, int run, String mode) {
+            this.params = params;
+            this.run = run;
+            this.mode = mode;
+        }
+
+        public Job(Params params, int run, boolean runFVM) {
+            this(params, run, runFVM ? "FVM" : "CIM");
+        }
+
+        // Pares de partículas evaluados: cada partícula recorre 9 celdas con N / (Mx My) partículas cada una
+        double cost() {
+            double perCell = (double) params.N / ((double) params.cellsX() * params.cellsY());
+            return (double) params.steps * params.N * (1 + 9 * perCell);
+        }
+    }
+
+    // transientSteps para tomar la mitad de los pasos de cada corrida
+    public static final int HALF_STEPS = -1;
+
+    private final int parallelism;
+    private final SweepStore store;
+    private final int transientSteps;
+    private double totalCost, doneCost;
+    private int done;
+    private long start;
+
+    public SweepExecutor(int parallelism, SweepStore store, int transientSteps) {
+        this.parallelism = parallelism <= 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        this.store = store;
+        this.transientSteps = transientSteps;
+    }
+
+    public SweepExecutor(int parallelism) {
+        this(parallelism, null, HALF_STEPS);
+    }
+
+    public SweepExecutor() {
+        this(0);
+    }
+
+    // Producto cartesiano de los parámetros, n_runs corridas de cada combinación. La semilla de cada corrida
+    // sale de los parámetros y del número de corrida, así relanzar el barrido repite las mismas claves
+    public static List<Job> expand(int n_runs, double[] eta_values, double[] v_values, double[] L, int[] N, Integer steps, boolean runFVM) {
+        List<Job> jobs = new ArrayList<>();
+        for (double eta : eta_values) {
+            for (double v : v_values) {
+                for (double l : L) {
+                    for (int n : N) {
+                        String outDir = "outputs/eta" + eta + "_v" + v + "_d" + n/(l*l);
+                        Params p = new Params(eta, v, l, n, outDir, steps);
+                        p.setAtomicOutput(true);
+
+                        for (int runs = 0; runs < n_runs; runs++) {
+                            Job job = new Job(new Params(p), runs, runFVM);
+                            job.params.setSeed(SweepStore.seed(p, job.mode, runs));
+                            jobs.add(job);
+                        }
+                    }
+                }
+            }
+        }
+        return jobs;
+    }
+
+    public void run(List<Job> jobs) {
+        List<Job> ordered = pending(jobs);
+        if (ordered.isEmpty()) return;
+        ordered.sort(Comparator.comparingDouble(Job::cost).reversed());
+
+        // Un params.csv por directorio de salida
+        Map<String, Params> outDirs = new LinkedHashMap<>();
+        for (Job job : ordered) outDirs.putIfAbsent(job.params.outDir, job.params);
+        for (Params p : outDirs.values()) p.createCSVFile();
+
+        totalCost = 0;
+        for (Job job : ordered) totalCost += job.cost();
+        doneCost = 0;
+        done = 0;
+        start = System.nanoTime();
+
+        // asyncMode: cada worker toma las tareas externas en orden FIFO, es decir de mayor a menor costo
+        ForkJoinPool pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(ordered.size());
+            for (Job job : ordered) {
+                tasks.add(pool.submit(() -> runJob(job, ordered.size())));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Sin store, todos; con store, los que no están en el log (y una sola vez cada clave repetida)
+    private List<Job> pending(List<Job> jobs) {
+        if (store == null) return new ArrayList<>(jobs);
+
+        List<Job> pending = new ArrayList<>(jobs.size());
+        Set<String> keys = new HashSet<>();
+        for (Job job : jobs) {
+            if (job.params.seed == null) throw new IllegalArgumentException("Las corridas del barrido necesitan semilla (ver expand)");
+            int transient_ = transientSteps(job);
+            if (store.contains(job.params, job.mode, transient_)) continue;
+            if (keys.add(SweepStore.tuple(job.params, job.mode, transient_) + " seed=" + job.params.seed)) pending.add(job);
+        }
+        if (pending.size() < jobs.size()) {
+            System.out.println(String.format("Barrido: %d de %d corridas ya estaban en el log, quedan %d",
+                    jobs.size() - pending.size(), jobs.size(), pending.size()));
+        }
+        return pending;
+    }
+
+    private int transientSteps(Job job) {
+        return transientSteps < 0 ? job.params.steps / 2 : transientSteps;
+    }
+
+    private void runJob(Job job, int total) {
+        try {
+            Simulation sim = new Simulation(job.params);
+            StationaryMean stationary = null;
+            if (store != null) {
+                stationary = new StationaryMean(sim.getPolarization(), transientSteps(job));
+                sim.addObservable(stationary);
+            }
+            switch (job.mode) {
+                case "CIM" -> sim.runCIM();
+                case "FVM" -> sim.runRandomNeighborsCIM();
+                case "KNN" -> sim.runTopological();
+                case "BF" -> sim.runBruteForce();
+                default -> throw new IllegalArgumentException("Modo de corrida desconocido: " + job.mode);
+            }
+            if (store != null) {
+                RunningStats stats = stationary.stats;
+                store.record(job.params, job.mode, stationary.transientSteps, stats.getCount(), stats.getMean(), stats.getVariance(), sim.getSimDir());
+            }
+            reportProgress(job, total, sim);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void reportProgress(Job job, int total, Simulation sim) {
+        done++;
+        doneCost += job.cost();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        double eta = elapsed / doneCost * (totalCost - doneCost);
+        System.out.println(String.format(Locale.US, "[%d/%d] %.1f%% - transcurrido %s, restante ~%s - corrida %d terminada en: %s",
+                done, total, 100.0 * doneCost / totalCost, formatTime(elapsed), formatTime(eta), job.run, sim.getSimDir().toAbsolutePath()));
+    }
+
+    // Media y varianza temporales de v_a desde transientSteps; v_a ya lo calculó la polarización de la simulación
+    private static class StationaryMean implements Observable {
+        final PolarizationObservable polarization;
+        final int transientSteps;
+        final RunningStats stats = new RunningStats();
+
+        StationaryMean(PolarizationObservable polarization, int transientSteps) {
+            this.polarization = polarization;
+            this.transientSteps = transientSteps;
+        }
+
+        @Override
+        public void observe(int t, ParticleStore particles) {
+            if (t >= transientSteps) stats.add(polarization.getLast());
+        }
+    }
+
+    private static String formatTime(double seconds) {
+        long s = (long) seconds;
+        return String.format("%d:%02d:%02d", TimeUnit.SECONDS.toHours(s), TimeUnit.SECONDS.toMinutes(s) % 60, s % 60);
+    }
+}
@@ -0,0 +1,290 @@
+package Models;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Resultados de un barrido en un log binario de solo agregado (outputs/sweep_results.bin), indexado en memoria
+ * por la tupla de parámetros y la semilla. La tupla es el modo más un SHA-256 de Params.write sin los campos
+ * que solo cambian la salida (ver parameters), así que cualquier opción que cambie la dinámica es otra corrida. Cada corrida terminada agrega un registro con el promedio temporal de
+ * v_a desde el transitorio; así un barrido que se relanza saltea lo ya hecho y los promedios entre semillas
+ * salen del índice sin volver a leer los directorios de las simulaciones.
+ * Registro: largo (int), datos, CRC32 (int). Un registro cortado al final (corte a mitad de escritura) se
+ * descarta al abrir; si la misma clave aparece dos veces vale la última.
+ */
+public class SweepStore implements Closeable {
+    public static final String FILE_NAME = "sweep_results.bin";
+    private static final byte[] MAGIC = {'V', 'I', 'C', 'S', 'E', 'K', 'S', 'W'};
+    private static final int VERSION = 2;
+
+    // Una corrida: parámetros, semilla y v_a estacionario (media y varianza temporales desde transientSteps)
+    public static final class Result {
+        public final String parameters;     // modo y huella de los parámetros que cambian la dinámica
+        public final String mode;
+        public final int N, steps, seed, transientSteps;
+        public final double Lx, Ly, v, eta, r;
+        public final String boundary;
+        public final long count;
+        public final double vaMean, vaVariance;
+        public final String simDir;
+
+        Result(String parameters, String mode, int N, double Lx, double Ly, double v, double eta, double r, int steps, String boundary,
+               int transientSteps, int seed, long count, double vaMean, double vaVariance, String simDir) {
+            this.parameters = parameters;
+            this.mode = mode;
+            this.N = N;
+            this.Lx = Lx;
+            this.Ly = Ly;
+            this.v = v;
+            this.eta = eta;
+            this.r = r;
+            this.steps = steps;
+            this.boundary = boundary;
+            this.transientSteps = transientSteps;
+            this.seed = seed;
+            this.count = count;
+            this.vaMean = vaMean;
+            this.vaVariance = vaVariance;
+            this.simDir = simDir;
+        }
+
+        public String tuple() {
+            return SweepStore.tuple(parameters, transientSteps);
+        }
+
+        public String key() {
+            return tuple() + " seed=" + seed;
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeUTF(parameters);
+            out.writeUTF(mode);
+            out.writeInt(N);
+            out.writeDouble(Lx);
+            out.writeDouble(Ly);
+            out.writeDouble(v);
+            out.writeDouble(eta);
+            out.writeDouble(r);
+            out.writeInt(steps);
+            out.writeUTF(boundary);
+            out.writeInt(transientSteps);
+            out.writeInt(seed);
+            out.writeLong(count);
+            out.writeDouble(vaMean);
+            out.writeDouble(vaVariance);
+            out.writeUTF(simDir);
+        }
+
+        static Result read(DataInput in) throws IOException {
+            return new Result(in.readUTF(), in.readUTF(), in.readInt(), in.readDouble(), in.readDouble(), in.readDouble(),
+                    in.readDouble(), in.readDouble(), in.readInt(), in.readUTF(), in.readInt(), in.readInt(),
+                    in.readLong(), in.readDouble(), in.readDouble(), in.readUTF());
+        }
+    }
+
+    // ⟨v_a⟩ entre las semillas de una tupla: media de los promedios de cada corrida y su desvío estándar
+    public static final class Summary {
+        public final Result first;      // parámetros de la tupla (los de su primera corrida)
+        public final int runs;
+        public final double mean, std;
+
+        Summary(Result first, int runs, double mean, double std) {
+            this.first = first;
+            this.runs = runs;
+            this.mean = mean;
+            this.std = std;
+        }
+
+        public double getStandardError() { return runs > 0 ? std / Math.sqrt(runs) : 0.0; }
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Map<String, Result> results = new LinkedHashMap<>();
+
+    public SweepStore(Path file) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            load();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public SweepStore() throws IOException {
+        this(Path.of("outputs", FILE_NAME));
+    }
+
+    // Lee el log entero, arma el índice y deja el canal al final del último registro completo
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + Integer.BYTES);
+            header.put(MAGIC).putInt(VERSION).flip();
+            while (header.hasRemaining()) channel.write(header);
+            return;
+        }
+
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        byte[] magic = new byte[MAGIC.length];
+        if (bytes.length < MAGIC.length + Integer.BYTES) throw new IOException("No es un log de barrido: " + file);
+        buf.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException("No es un log de barrido: " + file);
+        int version = buf.getInt();
+        if (version != VERSION) throw new IOException("Versión de log de barrido no soportada: " + version);
+
+        long good = buf.position();
+        CRC32 crc = new CRC32();
+        while (buf.remaining() >= Integer.BYTES) {
+            int length = buf.getInt();
+            if (length < 0 || buf.remaining() < length + Integer.BYTES) break;
+            crc.reset();
+            crc.update(bytes, buf.position(), length);
+            int expected = buf.getInt(buf.position() + length);
+            if ((int) crc.getValue() != expected) break;
+
+            Result result = Result.read(new DataInputStream(new ByteArrayInputStream(bytes, buf.position(), length)));
+            results.put(result.key(), result);
+            buf.position(buf.position() + length + Integer.BYTES);
+            good = buf.position();
+        }
+
+        // Registro incompleto o dañado al final: se descarta para que los siguientes queden bien encadenados
+        if (good < size) channel.truncate(good);
+        channel.position(good);
+    }
+
+    // Modo y SHA-256 de los parámetros que definen la dinámica de una corrida, sin la semilla (va aparte en la
+    // clave) ni los campos que solo cambian qué y cómo se escribe
+    public static String parameters(Params p, String mode) {
+        Params q = new Params(p);
+        q.seed = null;
+        q.saveEvery = 1;
+        q.outDir = "";
+        q.binaryOutput = false;
+        q.doublePrecision = false;
+        q.writeBuffers = 0;
+        q.dropWhenFull = false;
+        q.writeTrajectory = true;
+        q.writePolarization = true;
+        q.atomicOutput = false;
+        q.checkpointEvery = 0;
+        q.logEverySeconds = 0;
+        // Con el rng por contador el resultado no depende de la cantidad de hilos
+        if (q.counterRng) q.threads = 1;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            q.write(new DataOutputStream(bytes));
+            return mode + " " + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes.toByteArray()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String tuple(String parameters, int transientSteps) {
+        return parameters + " transient=" + transientSteps;
+    }
+
+    public static String tuple(Params p, String mode, int transientSteps) {
+        return tuple(parameters(p, mode), transientSteps);
+    }
+
+    // Semilla de la corrida `run` de unos parámetros: la misma en cada relanzamiento, distinta entre combinaciones
+    public static int seed(Params p, String mode, int run) {
+        return (int) CounterRng.hash(parameters(p, mode).hashCode(), run, 0, 0);
+    }
+
+    public synchronized boolean contains(Params p, String mode, int transientSteps) {
+        return p.seed != null && results.containsKey(tuple(p, mode, transientSteps) + " seed=" + p.seed);
+    }
+
+    // Agrega la corrida al log y la baja a disco antes de volver
+    public synchronized Result record(Params p, String mode, int transientSteps, long count, double vaMean, double vaVariance, Path simDir) throws IOException {
+        if (p.seed == null) throw new IllegalArgumentException("Las corridas del barrido necesitan semilla");
+        Result result = new Result(parameters(p, mode), mode, p.N, p.Lx, p.Ly, p.v, p.eta, p.r, p.steps, p.boundary.name(),
+                transientSteps, p.seed, count, vaMean, vaVariance, simDir.toString());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        result.write(new DataOutputStream(bytes));
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+
+        ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES + bytes.size() + Integer.BYTES);
+        buf.putInt(bytes.size()).put(bytes.toByteArray()).putInt((int) crc.getValue()).flip();
+        while (buf.hasRemaining()) channel.write(buf);
+        channel.force(false);
+
+        results.put(result.key(), result);
+        return result;
+    }
+
+    public synchronized List<Result> getResults() {
+        return new ArrayList<>(results.values());
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    // ⟨v_a⟩ ± σ de una tupla (runs = 0 si no hay corridas)
+    public synchronized Summary summary(Params p, String mode, int transientSteps) {
+        String tuple = tuple(p, mode, transientSteps);
+        List<Result> runs = new ArrayList<>();
+        for (Result result : results.values()) {
+            if (result.tuple().equals(tuple)) runs.add(result);
+        }
+        return summarize(runs);
+    }
+
+    // Un resumen por tupla, en el orden en que aparecieron en el log
+    public synchronized List<Summary> summaries() {
+        Map<String, List<Result>> byTuple = new LinkedHashMap<>();
+        for (Result result : results.values()) {
+            byTuple.computeIfAbsent(result.tuple(), t -> new ArrayList<>()).add(result);
+        }
+        List<Summary> summaries = new ArrayList<>(byTuple.size());
+        for (List<Result> runs : byTuple.values()) summaries.add(summarize(runs));
+        return summaries;
+    }
+
+    private static Summary summarize(List<Result> runs) {
+        RunningStats stats = new RunningStats();
+        for (Result result : runs) stats.add(result.vaMean);
+        return new Summary(runs.isEmpty() ? null : runs.get(0), runs.size(), stats.getMean(), Math.sqrt(stats.getSampleVariance()));
+    }
+
+    // Tabla de resúmenes sin repetidos (una fila por tupla) para graficar ⟨v_a⟩ contra los parámetros
+    public void writeSummaryCSV(Path csv) throws IOException {
+        try (BufferedWriter bw = Files.newBufferedWriter(csv)) {
+            // parameters_sha distingue tuplas que difieren en opciones sin columna propia (rng, heading, k, ...)
+            bw.write("mode,parameters_sha,N,Lx,Ly,rho,v,eta,r,steps,boundary,transient_steps,runs,va_mean,va_std\n");
+            for (Summary s : summaries()) {
+                Result p = s.first;
+                bw.write(String.format(Locale.US, "%s,%s,%d,%s,%s,%s,%s,%s,%s,%d,%s,%d,%d,%.6f,%.6f\n",
+                        p.mode, p.parameters.substring(p.parameters.indexOf(' ') + 1), p.N, p.Lx, p.Ly, p.N / (p.Lx * p.Ly), p.v, p.eta, p.r, p.steps, p.boundary,
+                        p.transientSteps, s.runs, s.mean, s.std));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
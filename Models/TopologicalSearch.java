@@ -0,0 +1,211 @@
+package Models;
+
+/**
+ * Búsqueda de los k vecinos más cercanos (Vicsek topológico) sobre una grilla de celdas propia, de ~2
+ * partículas por celda e independiente de r.
+ * Para cada partícula se recorren anillos de celdas cada vez más grandes alrededor de la suya; las candidatas
+ * pasan por el DistanceKernel con la peor distancia del heap como cota, y las que quedan entran a un max-heap
+ * acotado de k elementos. Se corta cuando el heap está lleno y su peor distancia es menor que la distancia
+ * a cualquier celda sin visitar. Empates de distancia por orden en la grilla.
+ * Sin asignaciones por partícula: el heap y el buffer de hits son por hilo y se reutilizan.
+ */
+public class TopologicalSearch {
+    private static final double PARTICLES_PER_CELL = 2.0;
+
+    private final int k;
+    private final double Lx, Ly;
+    private final double periodX, periodY;      // Lx y Ly en el toro, infinito sin bordes periódicos
+    private final int Mx, My;
+    private final double cellWidth, cellHeight;
+    private final boolean periodic;
+    private final CellGrid grid;
+    private final DistanceKernel distanceKernel;
+    private final ThreadLocal<Heap> heaps;
+
+    // Heap de máximo por (distancia², índice): d2[0] es la peor de las k mejores hasta ahora
+    private static final class Heap {
+        final double[] d2;
+        final int[] idx;
+        int size;
+        int[] hits = new int[16];
+
+        Heap(int k) {
+            d2 = new double[k];
+            idx = new int[k];
+        }
+
+        boolean greater(int a, int b) {
+            return d2[a] > d2[b] || (d2[a] == d2[b] && idx[a] > idx[b]);
+        }
+
+        void swap(int a, int b) {
+            double d = d2[a]; d2[a] = d2[b]; d2[b] = d;
+            int j = idx[a]; idx[a] = idx[b]; idx[b] = j;
+        }
+
+        void siftDown(int from, int n) {
+            int i = from;
+            while (true) {
+                int l = 2 * i + 1, r = l + 1, top = i;
+                if (l < n && greater(l, top)) top = l;
+                if (r < n && greater(r, top)) top = r;
+                if (top == i) return;
+                swap(i, top);
+                i = top;
+            }
+        }
+
+        // Agrega si entra entre las k mejores
+        void offer(double dist2, int j) {
+            if (size < d2.length) {
+                int i = size++;
+                d2[i] = dist2;
+                idx[i] = j;
+                while (i > 0 && greater(i, (i - 1) / 2)) {
+                    swap(i, (i - 1) / 2);
+                    i = (i - 1) / 2;
+                }
+            } else if (dist2 < d2[0] || (dist2 == d2[0] && j < idx[0])) {
+                d2[0] = dist2;
+                idx[0] = j;
+                siftDown(0, size);
+            }
+        }
+
+        // Heapsort en el lugar: deja idx[0 .. size) de la más cercana a la más lejana
+        void sort() {
+            for (int n = size - 1; n > 0; n--) {
+                swap(0, n);
+                siftDown(0, n);
+            }
+        }
+    }
+
+    public TopologicalSearch(Params p) {
+        this(p, p.vectorDistance ? DistanceKernel.best(p.boundary) : DistanceKernel.scalar(p.boundary));
+    }
+
+    TopologicalSearch(Params p, DistanceKernel distanceKernel) {
+        if (p.topologicalK < 1) throw new IllegalArgumentException("topologicalK debe ser positivo: " + p.topologicalK);
+        this.k = Math.min(p.topologicalK, p.N - 1);
+        this.Lx = p.Lx;
+        this.Ly = p.Ly;
+        double side = Math.sqrt(PARTICLES_PER_CELL * p.Lx * p.Ly / p.N);
+        this.Mx = Math.max(1, (int) (p.Lx / side));
+        this.My = Math.max(1, (int) (p.Ly / side));
+        this.cellWidth = p.Lx / Mx;
+        this.cellHeight = p.Ly / My;
+        this.periodic = p.boundary.periodic();
+        this.periodX = p.boundary.period(p.Lx);
+        this.periodY = p.boundary.period(p.Ly);
+        this.grid = new CellGrid(Mx, My, p.Lx, p.Ly, p.N, periodic);
+        this.distanceKernel = distanceKernel;
+        this.heaps = ThreadLocal.withInitial(() -> new Heap(Math.max(1, k)));
+    }
+
+    public int getK() { return k; }
+
+    public void build(ParticleStore particles) {
+        grid.build(particles);
+    }
+
+    /**
+     * Escribe en neighbors (largo >= k) los índices de los k vecinos más cercanos a i, sin i, del más
+     * cercano al más lejano, y devuelve cuántas distancias evaluó. Requiere build() con las posiciones actuales.
+     */
+    public long find(ParticleStore particles, int i, int[] neighbors) {
+        Heap heap = heaps.get();
+        heap.size = 0;
+        if (k == 0) return 0;
+
+        final int[] cellStart = grid.cellStart, cellCount = grid.cellCount, sortedIdx = grid.sortedIdx;
+        final double[] sortedX = grid.sortedX, sortedY = grid.sortedY;
+        double x = particles.getX(i), y = particles.getY(i);
+        int cell = grid.cellOf[i];
+        int cx = cell % Mx, cy = cell / Mx;
+        int self = grid.sortedPos[i];
+        long tested = 0;
+
+        // Caja de celdas visitada, en coordenadas sin envolver: recortada a la grilla, o en un eje periódico
+        // a lo sumo M columnas (una vez completa ya no se mueve)
+        int xLo = cx, xHi = cx, yLo = cy, yHi = cy;
+        int pxLo = 0, pxHi = -1, pyLo = 0, pyHi = -1;       // caja del anillo anterior (vacía al empezar)
+        for (int ring = 0; ; ring++) {
+            if (ring > 0) {
+                pxLo = xLo; pxHi = xHi; pyLo = yLo; pyHi = yHi;
+                if (!periodic) {
+                    xLo = Math.max(cx - ring, 0);
+                    xHi = Math.min(cx + ring, Mx - 1);
+                    yLo = Math.max(cy - ring, 0);
+                    yHi = Math.min(cy + ring, My - 1);
+                } else {
+                    if (xHi - xLo + 1 < Mx) { xLo = cx - ring; xHi = Math.min(cx + ring, xLo + Mx - 1); }
+                    if (yHi - yLo + 1 < My) { yLo = cy - ring; yHi = Math.min(cy + ring, yLo + My - 1); }
+                }
+                if (xLo == pxLo && xHi == pxHi && yLo == pyLo && yHi == pyHi) break;     // toda la grilla
+            }
+
+            for (int row = yLo; row <= yHi; row++) {
+                boolean inner = row >= pyLo && row <= pyHi;
+                // En las filas del anillo anterior solo las columnas nuevas, a izquierda y derecha
+                tested += scanRow(heap, x, y, row, xLo, inner ? Math.min(xHi, pxLo - 1) : xHi, self, cellStart, cellCount, sortedX, sortedY);
+                if (inner) tested += scanRow(heap, x, y, row, Math.max(xLo, pxHi + 1), xHi, self, cellStart, cellCount, sortedX, sortedY);
+            }
+
+            if (heap.size == k) {
+                double gap = gap(x, xLo, xHi, Mx, cellWidth);
+                gap = Math.min(gap, gap(y, yLo, yHi, My, cellHeight));
+                if (heap.d2[0] < gap * gap) break;
+            }
+        }
+
+        heap.sort();
+        for (int h = 0; h < heap.size; h++) neighbors[h] = sortedIdx[heap.idx[h]];
+        return tested;
+    }
+
+    // Distancia mínima de la coordenada a una celda fuera de [lo, hi] en el eje; infinito si no queda ninguna
+    private double gap(double coord, int lo, int hi, int M, double cell) {
+        double gap = Double.POSITIVE_INFINITY;
+        if (periodic) {
+            if (hi - lo + 1 >= M) return gap;
+            return Math.min(coord - lo * cell, (hi + 1) * cell - coord);
+        }
+        if (lo > 0) gap = coord - lo * cell;
+        if (hi < M - 1) gap = Math.min(gap, (hi + 1) * cell - coord);
+        return gap;
+    }
+
+    // Candidatas de las celdas [fromCol, toCol] de la fila row (sin envolver)
+    private long scanRow(Heap heap, double x, double y, int row, int fromCol, int toCol, int self,
+                         int[] cellStart, int[] cellCount, double[] sortedX, double[] sortedY) {
+        long tested = 0;
+        int wrappedRow = Math.floorMod(row, My);
+        for (int col = fromCol; col <= toCol; col++) {
+            int c = Math.floorMod(col, Mx) + wrappedRow * Mx;
+            int start = cellStart[c], end = start + cellCount[c];
+            if (end == start) continue;
+            if (heap.hits.length < end - start) heap.hits = new int[Math.max(2 * heap.hits.length, end - start)];
+
+            // Con el heap lleno el kernel descarta todo lo que no mejora la peor distancia
+            double bound = heap.size == k ? heap.d2[0] : Double.POSITIVE_INFINITY;
+            int n = distanceKernel.findHits(x, y, sortedX, sortedY, start, end, Lx, Ly, bound, heap.hits);
+            tested += end - start;
+            for (int h = 0; h < n; h++) {
+                int q = heap.hits[h];
+                if (q == self) continue;
+                heap.offer(distance2(x - sortedX[q], y - sortedY[q]), q);
+            }
+        }
+        return tested;
+    }
+
+    // Mismo cálculo que el DistanceKernel del modo; con período infinito queda la distancia directa
+    private double distance2(double dx, double dy) {
+        dx = Math.abs(dx);
+        dy = Math.abs(dy);
+        dx = Math.min(dx, periodX - dx);
+        dy = Math.min(dy, periodY - dy);
+        return dx*dx + dy*dy;
+    }
+}
@@ -0,0 +1,128 @@
+package Models;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Lector de trajectory.bin (ver BinaryTrajectoryWriter para el formato).
+ * Con main convierte una simulación al layout original steps/step_XXXX.csv:
+ *   java Models.TrajectoryReader outputs/eta0.1_v0.03_d5.0/sims/sim_XXXX.csv
+ */
+public class TrajectoryReader implements AutoCloseable {
+    public final int N, steps, saveEvery, Mx, My, bytesPerValue;
+    public final double Lx, Ly, v, eta, r;
+    public final long seed;
+
+    private final FileChannel channel;
+    private final ByteBuffer frame;
+    private final int frames;
+
+    public TrajectoryReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+
+        ByteBuffer header = ByteBuffer.allocate(BinaryTrajectoryWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(header, 0);
+        header.flip();
+
+        byte[] magic = new byte[BinaryTrajectoryWriter.MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, BinaryTrajectoryWriter.MAGIC)) {
+            throw new IOException("No es un archivo de trayectoria: " + file);
+        }
+        int version = header.getInt();
+        if (version < 1 || version > BinaryTrajectoryWriter.VERSION) {
+            throw new IOException("Versión de trayectoria no soportada: " + version);
+        }
+        this.N = header.getInt();
+        this.steps = header.getInt();
+        this.saveEvery = header.getInt();
+        this.Mx = header.getInt();
+        this.bytesPerValue = header.getInt();
+        this.Lx = header.getDouble();
+        this.v = header.getDouble();
+        this.eta = header.getDouble();
+        this.r = header.getDouble();
+        this.seed = header.getLong();
+        // La versión 1 es siempre cuadrada
+        this.My = version >= 2 ? header.getInt() : Mx;
+        this.Ly = version >= 2 ? header.getDouble() : Lx;
+
+        int frameSize = BinaryTrajectoryWriter.frameSize(N, bytesPerValue);
+        this.frame = ByteBuffer.allocateDirect(frameSize).order(ByteOrder.LITTLE_ENDIAN);
+        this.frames = (int) ((channel.size() - BinaryTrajectoryWriter.HEADER_SIZE) / frameSize);
+    }
+
+    public int frames() { return frames; }
+
+    // Lee el frame k en los arreglos dados y devuelve su número de paso
+    public int readFrame(int k, double[] x, double[] y, double[] vx, double[] vy) throws IOException {
+        frame.clear();
+        readFully(frame, BinaryTrajectoryWriter.HEADER_SIZE + (long) k * frame.capacity());
+        frame.flip();
+
+        int t = frame.getInt();
+        frame.getInt();
+        for (int i = 0; i < N; i++) {
+            if (bytesPerValue == 8) {
+                x[i] = frame.getDouble();
+                y[i] = frame.getDouble();
+                vx[i] = frame.getDouble();
+                vy[i] = frame.getDouble();
+            } else {
+                x[i] = frame.getFloat();
+                y[i] = frame.getFloat();
+                vx[i] = frame.getFloat();
+                vy[i] = frame.getFloat();
+            }
+        }
+        return t;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) throw new IOException("Fin de archivo inesperado");
+            position += n;
+        }
+    }
+
+    // Escribe todos los frames como steps/step_XXXX.csv dentro de simDir
+    public void toCsv(Path simDir) throws IOException {
+        Path stepsDir = simDir.resolve("steps");
+        Files.createDirectories(stepsDir);
+        double[] x = new double[N], y = new double[N], vx = new double[N], vy = new double[N];
+
+        for (int k = 0; k < frames; k++) {
+            int t = readFrame(k, x, y, vx, vy);
+            try (BufferedWriter bw = Files.newBufferedWriter(stepsDir.resolve(CsvTrajectoryWriter.fileName(t)))) {
+                bw.write("id,x,y,vx,vy\n");
+                for (int i = 0; i < N; i++) {
+                    bw.write(CsvTrajectoryWriter.formatRow(i, x[i], y[i], vx[i], vy[i]));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        for (String dir : args) {
+            Path simDir = Paths.get(dir);
+            try (TrajectoryReader reader = new TrajectoryReader(simDir.resolve(BinaryTrajectoryWriter.FILE_NAME))) {
+                reader.toCsv(simDir);
+                System.out.println(reader.frames() + " pasos convertidos en: " + simDir.resolve("steps").toAbsolutePath());
+            }
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package Models;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Dibuja el campo de flechas de un paso en un BufferedImage, sin display (java.awt.headless) ni Python.
+ * Las flechas siguen a visualize/animate_vectors.py: centradas en la partícula, de largo |v| / 0.14 y ancho
+ * 1% del ancho, opcionalmente coloreadas por ángulo (hsv) con su barra de colores.
+ * Las imágenes son indexadas con una paleta fija (blanco, negro, gris y 252 tonos), así el GIF no necesita
+ * cuantizar colores y los PNG quedan chicos.
+ * render() sirve para el store en memoria; renderSimulation() toma trajectory.bin o steps/*.csv, elige hasta
+ * maxFrames pasos equiespaciados y los dibuja en paralelo en un GIF animado o un PNG por paso:
+ *   java Models.TrajectoryRenderer outputs/eta0.1_v0.03_d5.0/sims/sim_XXXX.csv [salida.gif | carpeta] [--no-color]
+ */
+public class TrajectoryRenderer {
+    public static final String GIF_NAME = "anim_color_angle.gif";
+    public static final int DEFAULT_SIZE = 600;
+    public static final int DEFAULT_MAX_FRAMES = 1000;
+    private static final double ARROW_SCALE = 0.14;     // unidades de velocidad por unidad de largo (quiver scale)
+    private static final double ARROW_WIDTH = 0.01;     // ancho del cuerpo, en fracción del lado
+    private static final int GIF_DELAY_CS = 2;          // 20 ms por frame, como el script de Python
+
+    private static final int WHITE = 0, BLACK = 1, GREY = 2, HUES = 252, FIRST_HUE = 3;
+    private static final IndexColorModel PALETTE = palette();
+
+    private static final int MARGIN_LEFT = 44, MARGIN_TOP = 28, MARGIN_BOTTOM = 34, MARGIN_RIGHT = 12;
+    private static final int COLORBAR_WIDTH = 16, COLORBAR_LABELS = 40;
+
+    static {
+        if (System.getProperty("java.awt.headless") == null) System.setProperty("java.awt.headless", "true");
+    }
+
+    private final double Lx, Ly;
+    private final int plotWidth, plotHeight;    // área de la caja en píxeles, size en el lado más largo
+    private final double scale;                 // píxeles por unidad de largo
+    private final boolean colorByAngle;
+
+    public TrajectoryRenderer(double Lx, double Ly, int size, boolean colorByAngle) {
+        this.Lx = Lx;
+        this.Ly = Ly;
+        this.scale = size / Math.max(Lx, Ly);
+        this.plotWidth = (int) Math.round(Lx * scale);
+        this.plotHeight = (int) Math.round(Ly * scale);
+        this.colorByAngle = colorByAngle;
+    }
+
+    public TrajectoryRenderer(double Lx, double Ly, boolean colorByAngle) {
+        this(Lx, Ly, DEFAULT_SIZE, colorByAngle);
+    }
+
+    private static IndexColorModel palette() {
+        int n = FIRST_HUE + HUES;
+        byte[] r = new byte[n], g = new byte[n], b = new byte[n];
+        int[] fixed = {0xFFFFFF, 0x000000, 0x808080};
+        for (int k = 0; k < FIRST_HUE; k++) {
+            r[k] = (byte) (fixed[k] >> 16);
+            g[k] = (byte) (fixed[k] >> 8);
+            b[k] = (byte) fixed[k];
+        }
+        for (int h = 0; h < HUES; h++) {
+            int rgb = Color.HSBtoRGB((float) h / HUES, 1f, 1f);
+            r[FIRST_HUE + h] = (byte) (rgb >> 16);
+            g[FIRST_HUE + h] = (byte) (rgb >> 8);
+            b[FIRST_HUE + h] = (byte) rgb;
+        }
+        return new IndexColorModel(8, n, r, g, b);
+    }
+
+    // Color de la paleta para un ángulo en [0, 2π)
+    static Color hue(double angle) {
+        int h = (int) (angle / (2.0 * Math.PI) * HUES);
+        h = Math.floorMod(h, HUES);
+        return new Color(PALETTE.getRGB(FIRST_HUE + h));
+    }
+
+    /* -------------------- DIBUJO  -------------------- */
+
+    public int getWidth() {
+        return MARGIN_LEFT + plotWidth + MARGIN_RIGHT + (colorByAngle ? COLORBAR_WIDTH + COLORBAR_LABELS : 0);
+    }
+
+    public int getHeight() {
+        return MARGIN_TOP + plotHeight + MARGIN_BOTTOM;
+    }
+
+    // Paso t a partir del store en memoria, en orden de id
+    public BufferedImage render(int t, ParticleStore particles, double v) {
+        int n = particles.size();
+        double[] x = new double[n], y = new double[n], vx = new double[n], vy = new double[n];
+        for (int k = 0; k < n; k++) {
+            int i = particles.rowIndex(k);
+            x[k] = particles.getX(i);
+            y[k] = particles.getY(i);
+            vx[k] = particles.vx(i, v);
+            vy[k] = particles.vy(i, v);
+        }
+        return render(t, x, y, vx, vy, n);
+    }
+
+    public BufferedImage render(int t, double[] x, double[] y, double[] vx, double[] vy, int n) {
+        BufferedImage img = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_BYTE_INDEXED, PALETTE);
+        Graphics2D g = img.createGraphics();
+        try {
+            // Sin antialiasing: todo color dibujado es exactamente uno de la paleta
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, img.getWidth(), img.getHeight());
+
+            drawAxes(g, t);
+            g.setClip(MARGIN_LEFT, MARGIN_TOP, plotWidth, plotHeight);
+            double width = ARROW_WIDTH * plotWidth;
+            for (int i = 0; i < n; i++) {
+                if (colorByAngle) g.setColor(hue(Particle.angleOf(vx[i], vy[i])));
+                else g.setColor(Color.BLACK);
+                g.fill(arrow(MARGIN_LEFT + x[i] * scale, MARGIN_TOP + (Ly - y[i]) * scale,
+                        vx[i] / ARROW_SCALE * scale, -vy[i] / ARROW_SCALE * scale, width));
+            }
+            g.setClip(null);
+            if (colorByAngle) drawColorbar(g);
+        } finally {
+            g.dispose();
+        }
+        return img;
+    }
+
+    // Flecha de quiver centrada en (cx, cy) con vector (dx, dy) en píxeles: cabeza de 3 anchos por 5 de largo
+    private static Shape arrow(double cx, double cy, double dx, double dy, double width) {
+        double len = Math.hypot(dx, dy);
+        Path2D.Double path = new Path2D.Double();
+        if (len == 0) return path;
+        double ux = dx / len, uy = dy / len;        // dirección
+        double nx = -uy, ny = ux;                   // normal
+        double headLength = Math.min(5 * width, len), headBase = 0.9 * headLength;
+        double half = width / 2, headHalf = 1.5 * width;
+
+        double tailX = cx - ux * len / 2, tailY = cy - uy * len / 2;
+        double tipX = cx + ux * len / 2, tipY = cy + uy * len / 2;
+        double baseX = tipX - ux * headBase, baseY = tipY - uy * headBase;
+        double backX = tipX - ux * headLength, backY = tipY - uy * headLength;
+
+        path.moveTo(tailX + nx * half, tailY + ny * half);
+        path.lineTo(baseX + nx * half, baseY + ny * half);
+        path.lineTo(backX + nx * headHalf, backY + ny * headHalf);
+        path.lineTo(tipX, tipY);
+        path.lineTo(backX - nx * headHalf, backY - ny * headHalf);
+        path.lineTo(baseX - nx * half, baseY - ny * half);
+        path.lineTo(tailX - nx * half, tailY - ny * half);
+        path.closePath();
+        return path;
+    }
+
+    private void drawAxes(Graphics2D g, int t) {
+        g.setColor(Color.BLACK);
+        g.drawRect(MARGIN_LEFT, MARGIN_TOP, plotWidth, plotHeight);
+        FontMetrics fm = g.getFontMetrics();
+
+        String title = "t=" + t;
+        g.drawString(title, MARGIN_LEFT + (plotWidth - fm.stringWidth(title)) / 2, MARGIN_TOP - 8);
+
+        // Marcas en 0, la mitad y el largo de cada eje
+        for (int k = 0; k <= 2; k++) {
+            String labelX = tickLabel(Lx * k / 2), labelY = tickLabel(Ly * k / 2);
+            int px = MARGIN_LEFT + plotWidth * k / 2, py = MARGIN_TOP + plotHeight - plotHeight * k / 2;
+            g.drawLine(px, MARGIN_TOP + plotHeight, px, MARGIN_TOP + plotHeight + 4);
+            g.drawString(labelX, px - fm.stringWidth(labelX) / 2, MARGIN_TOP + plotHeight + 4 + fm.getAscent());
+            g.drawLine(MARGIN_LEFT - 4, py, MARGIN_LEFT, py);
+            g.drawString(labelY, MARGIN_LEFT - 6 - fm.stringWidth(labelY), py + fm.getAscent() / 2);
+        }
+        g.drawString("x", MARGIN_LEFT + plotWidth / 2, getHeight() - 4);
+        g.drawString("y", 4, MARGIN_TOP + plotHeight / 2);
+    }
+
+    private static String tickLabel(double value) {
+        return String.format(Locale.US, value == Math.rint(value) ? "%.0f" : "%.1f", value);
+    }
+
+    // Barra vertical de 0 (abajo) a 2π (arriba), a 60% del alto como en el script de Python
+    private void drawColorbar(Graphics2D g) {
+        int height = (int) (0.6 * plotHeight);
+        int x0 = MARGIN_LEFT + plotWidth + MARGIN_RIGHT, y0 = MARGIN_TOP + (plotHeight - height) / 2;
+        for (int row = 0; row < height; row++) {
+            g.setColor(hue(2.0 * Math.PI * (height - 1 - row) / height));
+            g.drawLine(x0, y0 + row, x0 + COLORBAR_WIDTH - 1, y0 + row);
+        }
+        g.setColor(Color.BLACK);
+        g.drawRect(x0, y0, COLORBAR_WIDTH - 1, height - 1);
+        FontMetrics fm = g.getFontMetrics();
+        g.drawString("2π", x0 + COLORBAR_WIDTH + 4, y0 + fm.getAscent() / 2);
+        g.drawString("π", x0 + COLORBAR_WIDTH + 4, y0 + height / 2 + fm.getAscent() / 2);
+        g.drawString("0", x0 + COLORBAR_WIDTH + 4, y0 + height + fm.getAscent() / 2);
+        g.setColor(new Color(PALETTE.getRGB(GREY)));
+        g.drawString("rad", x0, y0 - 6);
+    }
+
+    /* -------------------- TRAYECTORIAS  -------------------- */
+
+    // Frames de una simulación guardada: trajectory.bin si existe, si no steps/step_XXXX.csv
+    private interface FrameSource extends Closeable {
+        int frames();
+
+        int size();
+
+        double lengthX();
+
+        double lengthY();
+
+        // Lee el frame k y devuelve su número de paso
+        int readFrame(int k, double[] x, double[] y, double[] vx, double[] vy) throws IOException;
+    }
+
+    private static FrameSource open(Path simDir) throws IOException {
+        Path bin = simDir.resolve(BinaryTrajectoryWriter.FILE_NAME);
+        if (Files.exists(bin)) {
+            TrajectoryReader reader = new TrajectoryReader(bin);
+            return new FrameSource() {
+                public int frames() { return reader.frames(); }
+                public int size() { return reader.N; }
+                public double lengthX() { return reader.Lx; }
+                public double lengthY() { return reader.Ly; }
+                public int readFrame(int k, double[] x, double[] y, double[] vx, double[] vy) throws IOException {
+                    return reader.readFrame(k, x, y, vx, vy);
+                }
+                public void close() throws IOException { reader.close(); }
+            };
+        }
+
+        List<Path> files;
+        try (Stream<Path> steps = Files.list(simDir.resolve("steps"))) {
+            files = steps.filter(f -> f.getFileName().toString().matches("step_\\d+\\.csv"))
+                    .sorted(Comparator.comparingInt(TrajectoryRenderer::stepOf)).collect(Collectors.toList());
+        }
+        if (files.isEmpty()) throw new IOException("No hay pasos guardados en " + simDir);
+        int n;
+        try (Stream<String> lines = Files.lines(files.get(0))) {
+            n = (int) lines.count() - 1;
+        }
+        double[] box = readBox(simDir);
+
+        return new FrameSource() {
+            public int frames() { return files.size(); }
+            public int size() { return n; }
+            public double lengthX() { return box[0]; }
+            public double lengthY() { return box[1]; }
+            public int readFrame(int k, double[] x, double[] y, double[] vx, double[] vy) throws IOException {
+                Path file = files.get(k);
+                try (BufferedReader br = Files.newBufferedReader(file)) {
+                    br.readLine();
+                    for (int i = 0; i < n; i++) {
+                        String[] cols = br.readLine().split(",");
+                        x[i] = Double.parseDouble(cols[1]);
+                        y[i] = Double.parseDouble(cols[2]);
+                        vx[i] = Double.parseDouble(cols[3]);
+                        vy[i] = Double.parseDouble(cols[4]);
+                    }
+                }
+                return stepOf(file);
+            }
+            public void close() {}
+        };
+    }
+
+    // Paso de un step_XXXX.csv. Se ordena por número: %04d rellena a 4 dígitos, y desde el paso 10000 el orden
+    // de texto pondría step_10000 antes que step_2000
+    private static int stepOf(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring("step_".length(), name.length() - ".csv".length()));
+    }
+
+    // {Lx, Ly} de outDir/params.csv (la simulación está en outDir/sims/sim_XXXX); los viejos tienen una sola L
+    private static double[] readBox(Path simDir) throws IOException {
+        Path params = simDir.toAbsolutePath().getParent().getParent().resolve("params.csv");
+        List<String> lines = Files.readAllLines(params);
+        List<String> header = List.of(lines.get(0).split(","));
+        String[] values = lines.get(1).split(",");
+        if (!header.contains("Lx")) {
+            double L = Double.parseDouble(values[header.indexOf("L")]);
+            return new double[]{L, L};
+        }
+        return new double[]{Double.parseDouble(values[header.indexOf("Lx")]), Double.parseDouble(values[header.indexOf("Ly")])};
+    }
+
+    // Índices de hasta maxFrames frames equiespaciados entre el primero y el último (np.linspace truncado)
+    static int[] pickFrames(int frames, int maxFrames) {
+        int m = Math.min(frames, maxFrames);
+        int[] picked = new int[m];
+        for (int k = 0; k < m; k++) {
+            picked[k] = m == 1 ? 0 : (int) ((double) k * (frames - 1) / (m - 1));
+        }
+        return picked;
+    }
+
+    // GIF animado si out termina en .gif, si no un frame_XXXX.png por paso dentro de la carpeta out.
+    // Los frames se leen en orden y se dibujan en `threads` hilos (<= 0 usa todos los núcleos); devuelve cuántos
+    public static int renderSimulation(Path simDir, Path out, boolean colorByAngle, int maxFrames, int threads) throws IOException {
+        boolean gif = out.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gif");
+        int nThreads = threads <= 0 ? Runtime.getRuntime().availableProcessors() : threads;
+        ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+
+        try (FrameSource source = open(simDir);
+             GifSequence sequence = gif ? new GifSequence(out) : null) {
+            if (!gif) Files.createDirectories(out);
+            TrajectoryRenderer renderer = new TrajectoryRenderer(source.lengthX(), source.lengthY(), colorByAngle);
+            int[] picked = pickFrames(source.frames(), maxFrames);
+            int n = source.size();
+
+            // Ventana acotada de frames en vuelo: se escriben en orden a medida que se completan
+            Deque<Future<BufferedImage>> pending = new ArrayDeque<>();
+            for (int k : picked) {
+                double[] x = new double[n], y = new double[n], vx = new double[n], vy = new double[n];
+                int t = source.readFrame(k, x, y, vx, vy);
+                pending.add(pool.submit(() -> {
+                    BufferedImage img = renderer.render(t, x, y, vx, vy, n);
+                    if (!gif) ImageIO.write(img, "png", out.resolve(String.format("frame_%04d.png", t)).toFile());
+                    return img;
+                }));
+                if (pending.size() >= 2 * nThreads) finish(pending.poll(), sequence);
+            }
+            while (!pending.isEmpty()) finish(pending.poll(), sequence);
+            return picked.length;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // GIF en la carpeta de la simulación con el nombre que usa animate_vectors.py
+    public static int animate(Path simDir) throws IOException {
+        return renderSimulation(simDir, simDir.resolve(GIF_NAME), true, DEFAULT_MAX_FRAMES, 0);
+    }
+
+    private static void finish(Future<BufferedImage> frame, GifSequence sequence) throws IOException {
+        try {
+            BufferedImage img = frame.get();
+            if (sequence != null) sequence.add(img);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido dibujando frames", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+            throw new IOException("Error dibujando un frame", e.getCause());
+        }
+    }
+
+    /* -------------------- GIF  -------------------- */
+
+    // GIF animado con ImageIO: GIF_DELAY_CS por frame y repetición infinita (extensión NETSCAPE2.0)
+    private static class GifSequence implements Closeable {
+        private final ImageOutputStream stream;
+        private final ImageWriter writer;
+        private boolean first = true;
+
+        GifSequence(Path file) throws IOException {
+            this.writer = ImageIO.getImageWritersByFormatName("gif").next();
+            Files.deleteIfExists(file);
+            this.stream = ImageIO.createImageOutputStream(file.toFile());
+            writer.setOutput(stream);
+            writer.prepareWriteSequence(null);
+        }
+
+        void add(BufferedImage img) throws IOException {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            IIOMetadata meta = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(img), param);
+            String format = meta.getNativeMetadataFormatName();
+            IIOMetadataNode root = (IIOMetadataNode) meta.getAsTree(format);
+
+            IIOMetadataNode control = child(root, "GraphicControlExtension");
+            control.setAttribute("disposalMethod", "none");
+            control.setAttribute("userInputFlag", "FALSE");
+            control.setAttribute("transparentColorFlag", "FALSE");
+            control.setAttribute("delayTime", Integer.toString(GIF_DELAY_CS));
+            control.setAttribute("transparentColorIndex", "0");
+
+            if (first) {
+                IIOMetadataNode app = new IIOMetadataNode("ApplicationExtension");
+                app.setAttribute("applicationID", "NETSCAPE");
+                app.setAttribute("authenticationCode", "2.0");
+                app.setUserObject(new byte[]{1, 0, 0});     // 0 = repetir siempre
+                child(root, "ApplicationExtensions").appendChild(app);
+                first = false;
+            }
+
+            meta.setFromTree(format, root);
+            writer.writeToSequence(new IIOImage(img, null, meta), param);
+        }
+
+        private static IIOMetadataNode child(IIOMetadataNode root, String name) {
+            for (int k = 0; k < root.getLength(); k++) {
+                if (root.item(k).getNodeName().equals(name)) return (IIOMetadataNode) root.item(k);
+            }
+            IIOMetadataNode node = new IIOMetadataNode(name);
+            root.appendChild(node);
+            return node;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writer.endWriteSequence();
+            } finally {
+                writer.dispose();
+                stream.close();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean color = true;
+        Path simDir = null, out = null;
+        for (String arg : args) {
+            if (arg.equals("--no-color")) color = false;
+            else if (simDir == null) simDir = Paths.get(arg);
+            else out = Paths.get(arg);
+        }
+        if (simDir == null) {
+            System.err.println("Uso: java Models.TrajectoryRenderer <simDir> [salida.gif | carpeta] [--no-color]");
+            System.exit(1);
+        }
+        if (out == null) out = simDir.resolve(GIF_NAME);
+
+        long start = System.nanoTime();
+        int frames = renderSimulation(simDir, out, color, DEFAULT_MAX_FRAMES, 0);
+        System.out.printf(Locale.US, "%d frames en %.1f s: %s%n", frames, (System.nanoTime() - start) / 1e9, out.toAbsolutePath());
+    }
+}
@@ -0,0 +1,18 @@
+package Models;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destino de los pasos guardados de una simulación.
+ */
+public interface TrajectoryWriter extends Closeable {
+
+    void writeStep(int t, ParticleStore particles) throws IOException;
+
+    // Bytes escritos hasta ahora (se puede leer desde otro hilo, p.ej. SimulationMetrics)
+    long getBytesWritten();
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,74 @@
+package Models;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Mismo cálculo que ScalarDistanceKernel de a SPECIES.length() candidatas; la cola sigue en escalar
+class VectorDistanceKernel implements DistanceKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public int findHits(double x, double y, double[] xs, double[] ys, int from, int to, double Lx, double Ly, double r2, int[] hits) {
+        DoubleVector vx = DoubleVector.broadcast(SPECIES, x);
+        DoubleVector vy = DoubleVector.broadcast(SPECIES, y);
+        DoubleVector vLx = DoubleVector.broadcast(SPECIES, Lx);
+        DoubleVector vLy = DoubleVector.broadcast(SPECIES, Ly);
+        int found = 0;
+        int q = from;
+
+        for (int bound = from + SPECIES.loopBound(to - from); q < bound; q += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, q).sub(vx).abs();
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, q).sub(vy).abs();
+            dx = dx.min(vLx.sub(dx));
+            dy = dy.min(vLy.sub(dy));
+            DoubleVector d2 = dx.mul(dx).add(dy.mul(dy));
+
+            long bits = d2.compare(VectorOperators.LE, r2).toLong();
+            while (bits != 0) {
+                hits[found++] = q + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+
+        for (; q < to; q++) {
+            double dx = Math.abs(xs[q] - x);
+            double dy = Math.abs(ys[q] - y);
+            dx = Math.min(dx, Lx - dx);
+            dy = Math.min(dy, Ly - dy);
+            if (dx*dx + dy*dy <= r2) hits[found++] = q;
+        }
+        return found;
+    }
+
+    // Sin bordes periódicos: distancia directa, sin abs ni min
+    static final class Euclidean implements DistanceKernel {
+
+        @Override
+        public int findHits(double x, double y, double[] xs, double[] ys, int from, int to, double Lx, double Ly, double r2, int[] hits) {
+            DoubleVector vx = DoubleVector.broadcast(SPECIES, x);
+            DoubleVector vy = DoubleVector.broadcast(SPECIES, y);
+            int found = 0;
+            int q = from;
+
+            for (int bound = from + SPECIES.loopBound(to - from); q < bound; q += SPECIES.length()) {
+                DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, q).sub(vx);
+                DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, q).sub(vy);
+                DoubleVector d2 = dx.mul(dx).add(dy.mul(dy));
+
+                long bits = d2.compare(VectorOperators.LE, r2).toLong();
+                while (bits != 0) {
+                    hits[found++] = q + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+
+            for (; q < to; q++) {
+                double dx = xs[q] - x;
+                double dy = ys[q] - y;
+                if (dx*dx + dy*dy <= r2) hits[found++] = q;
+            }
+            return found;
+        }
+    }
+}
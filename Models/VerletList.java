@@ -0,0 +1,109 @@
+package Models;
+
+import java.util.Arrays;
+
+/**
+ * Lista de pares de Verlet: todos los pares a distancia <= r + skin al momento de construirla.
+ * Mientras ninguna partícula se haya movido más de skin/2 desde entonces, todo par a distancia <= r
+ * está en la lista, así que alcanza con filtrarla en cada paso en lugar de recorrer la grilla.
+ * Cada par (first[k], second[k]) aparece una sola vez, en el orden del recorrido de medio stencil de
+ * findNeighborsCIM.
+ */
+class VerletList {
+    private final double periodX, periodY;  // Lx y Ly en el toro, infinito sin bordes periódicos
+    private final double listRadius2;
+    private final double maxDisplacement2;
+    private final CellGrid grid;
+    private final double[] x0, y0;      // posiciones al construir la lista
+
+    int[] first = new int[1024];
+    int[] second = new int[1024];
+    int size;
+    private boolean built;
+    private int rebuilds;
+
+    VerletList(Params p) {
+        double listRadius = p.r + p.verletSkin;
+        if (p.verletSkin <= 0) throw new IllegalArgumentException("verletSkin debe ser positivo: " + p.verletSkin);
+        // Con un lado < 2 (r + skin) un par podría estar en la lista por una imagen y quedar cerca por otra
+        if (p.boundary.periodic() && Math.min(p.Lx, p.Ly) < 2 * listRadius) {
+            throw new IllegalArgumentException("min(Lx, Ly) = " + Math.min(p.Lx, p.Ly) + " es menor que 2 (r + skin) = " + 2 * listRadius);
+        }
+
+        this.periodX = p.boundary.period(p.Lx);
+        this.periodY = p.boundary.period(p.Ly);
+        this.listRadius2 = listRadius * listRadius;
+        // Un poco menos de skin/2 para que el redondeo no deje afuera un par justo en el borde
+        double half = 0.5 * p.verletSkin * (1 - 1e-9);
+        this.maxDisplacement2 = half * half;
+        boolean periodic = p.boundary.periodic();
+        this.grid = new CellGrid(Params.maxCellsPerSide(p.Lx, listRadius, periodic), Params.maxCellsPerSide(p.Ly, listRadius, periodic),
+                p.Lx, p.Ly, p.N, periodic);
+        this.grid.computeTopCornerStencil();
+        this.x0 = new double[p.N];
+        this.y0 = new double[p.N];
+    }
+
+    boolean needsRebuild(ParticleStore particles) {
+        if (!built) return true;
+        for (int i = 0; i < x0.length; i++) {
+            double dx = minImage(particles.getX(i) - x0[i], periodX);
+            double dy = minImage(particles.getY(i) - y0[i], periodY);
+            if (dx*dx + dy*dy > maxDisplacement2) return true;
+        }
+        return false;
+    }
+
+    void build(ParticleStore particles) {
+        grid.build(particles);
+        final int[] stencil = grid.stencil, cellStart = grid.cellStart, cellCount = grid.cellCount, sortedIdx = grid.sortedIdx;
+        final int width = grid.stencilWidth;
+        size = 0;
+
+        for (int p1 = 0; p1 < x0.length; p1++) {
+            int cellIndex = grid.cellOf[p1];
+            double x1 = particles.getX(p1), y1 = particles.getY(p1);
+
+            for (int k = cellIndex * width; k < (cellIndex + 1) * width; k++) {
+                int neighborIndex = stencil[k];
+                if (neighborIndex == CellGrid.NOT_FOUND) continue;
+
+                int end = cellStart[neighborIndex] + cellCount[neighborIndex];
+                for (int q = cellStart[neighborIndex]; q < end; q++) {
+                    int p2 = sortedIdx[q];
+                    if (neighborIndex==cellIndex && p1 >= p2) continue;
+
+                    double dx = minImage(particles.getX(p2) - x1, periodX);
+                    double dy = minImage(particles.getY(p2) - y1, periodY);
+                    if (dx*dx + dy*dy <= listRadius2) add(p1, p2);
+                }
+            }
+            x0[p1] = x1;
+            y0[p1] = y1;
+        }
+        built = true;
+        rebuilds++;
+    }
+
+    private void add(int i, int j) {
+        if (size == first.length) {
+            first = Arrays.copyOf(first, 2 * size);
+            second = Arrays.copyOf(second, 2 * size);
+        }
+        first[size] = i;
+        second[size] = j;
+        size++;
+    }
+
+    // Tras reordenar el store los índices guardados dejan de valer
+    void invalidate() { built = false; }
+
+    int getRebuilds() { return rebuilds; }
+
+    // |d| por imagen mínima; con period infinito es la distancia directa (una partícula reinyectada
+    // en OPEN se ve como un desplazamiento grande y fuerza la reconstrucción)
+    private static double minImage(double d, double period) {
+        d = Math.abs(d);
+        return Math.min(d, period - d);
+    }
+}
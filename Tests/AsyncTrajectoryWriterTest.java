@@ -0,0 +1,40 @@
+package Tests;
+
+import Models.ArrayParticleStore;
+import Models.AsyncTrajectoryWriter;
+import Models.ParticleStore;
+import Models.TrajectoryWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncTrajectoryWriterTest {
+
+    @Test
+    public void testRuntimeExceptionIsReportedInsteadOfHanging() {
+        // Un destino que falla con una excepción no chequeada en el primer paso
+        TrajectoryWriter failing = new TrajectoryWriter() {
+            @Override
+            public void writeStep(int t, ParticleStore particles) {
+                throw new IllegalStateException("buffer lleno");
+            }
+
+            @Override
+            public long getBytesWritten() { return 0; }
+
+            @Override
+            public void close() {}
+        };
+
+        ArrayParticleStore particles = new ArrayParticleStore(10);
+        AsyncTrajectoryWriter writer = new AsyncTrajectoryWriter(failing, 10, 1, false);
+        IOException e = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class, () -> {
+            for (int t = 0; t < 100; t++) writer.writeStep(t, particles);
+        }));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertThrows(IOException.class, writer::close);
+    }
+}
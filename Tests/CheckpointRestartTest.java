@@ -0,0 +1,163 @@
+package Tests;
+
+import Models.ArrayParticleStore;
+import Models.BinaryTrajectoryWriter;
+import Models.Checkpoint;
+import Models.Params;
+import Models.Simulation;
+import Models.TrajectoryReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheckpointRestartTest {
+
+    private final String outDir = "outputs/checkpoint";
+    private final int steps = 300;
+
+    private Params params(int steps, int checkpointEvery) {
+        Params p = new Params(0.5, 0.03, 10.0, 300, outDir, steps);
+        p.setSeed(5);
+        p.setCheckpointEvery(checkpointEvery);
+        return p;
+    }
+
+    // Corre 150 pasos, retoma desde el checkpoint final hasta `steps` y devuelve el directorio
+    private Path interruptedRun(Params p, boolean fvm) throws IOException {
+        Simulation first = new Simulation(p);
+        if (fvm) first.runRandomNeighborsCIM(); else first.runCIM();
+
+        Simulation resumed = Simulation.resume(first.getSimDir().resolve(Checkpoint.FILE_NAME), steps);
+        assertEquals(150, resumed.getStep());
+        resumed.continueRun();
+        return resumed.getSimDir();
+    }
+
+    private static List<Path> files(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(f -> !f.getFileName().toString().equals(Checkpoint.FILE_NAME))
+                    .map(dir::relativize)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void assertSameOutputs(Path expected, Path actual) throws IOException {
+        List<Path> expectedFiles = files(expected);
+        assertEquals(expectedFiles, files(actual), "Distintos archivos de salida");
+        for (Path f : expectedFiles) {
+            assertArrayEquals(Files.readAllBytes(expected.resolve(f)), Files.readAllBytes(actual.resolve(f)), "Diferencia en " + f);
+        }
+    }
+
+    @Test
+    public void testResumedCIMIsIdentical() throws IOException {
+        Simulation full = new Simulation(params(steps, 100));
+        full.runCIM();
+
+        Path resumed = interruptedRun(params(150, 50), false);
+        assertSameOutputs(full.getSimDir(), resumed);
+    }
+
+    @Test
+    public void testResumedBinaryFVMIsIdentical() throws IOException {
+        Params p = params(steps, 100);
+        p.setCounterRng(true);
+        p.setBinaryOutput(true);
+        Simulation full = new Simulation(p);
+        full.runRandomNeighborsCIM();
+
+        Params interrupted = params(150, 50);
+        interrupted.setCounterRng(true);
+        interrupted.setBinaryOutput(true);
+        Path resumed = interruptedRun(interrupted, true);
+        assertSameOutputs(full.getSimDir(), resumed);
+    }
+
+    @Test
+    public void testResumedReorderedCIMIsIdentical() throws IOException {
+        // El checkpoint guarda el orden del store y los ids externos
+        Params p = params(steps, 100);
+        p.setReorderEvery(7);
+        Simulation full = new Simulation(p);
+        full.runCIM();
+
+        Params interrupted = params(150, 50);
+        interrupted.setReorderEvery(7);
+        Path resumed = interruptedRun(interrupted, false);
+        assertSameOutputs(full.getSimDir(), resumed);
+    }
+
+    @Test
+    public void testResumedUnitHeadingIsIdentical() throws IOException {
+        // Con unitHeading el checkpoint guarda cos/sin: reconstruirlos desde θ cambia el último bit, que solo
+        // se ve en la trayectoria binaria en doble precisión
+        Params p = params(steps, 100);
+        p.setUnitHeading(true);
+        p.setBinaryOutput(true);
+        p.setDoublePrecision(true);
+        Simulation full = new Simulation(p);
+        full.runCIM();
+
+        Params interrupted = params(150, 50);
+        interrupted.setUnitHeading(true);
+        interrupted.setBinaryOutput(true);
+        interrupted.setDoublePrecision(true);
+        Path resumed = interruptedRun(interrupted, false);
+        assertSameOutputs(full.getSimDir(), resumed);
+    }
+
+    @Test
+    public void testResumedAutoStopStopsAtSameStep() throws IOException {
+        // Las ventanas del detector cruzan el checkpoint del paso 150 y la corrida corta antes de `steps`:
+        // el checkpoint tiene que llevar el estado del detector para que stationary.csv y el corte coincidan
+        Params p = autoStop(params(steps, 100));
+        Simulation full = new Simulation(p);
+        full.runCIM();
+        assertTrue(full.getStep() > 150 && full.getStep() < steps, "corte en " + full.getStep());
+
+        Path resumed = interruptedRun(autoStop(params(150, 50)), false);
+        assertSameOutputs(full.getSimDir(), resumed);
+    }
+
+    private static Params autoStop(Params p) {
+        p.setAutoStop(true);
+        p.setStationaryWindow(20);
+        p.setStationaryTolerance(0.02);
+        p.setStationarySamples(20);
+        return p;
+    }
+
+    @Test
+    public void testBinaryResumeWithDroppedFrames() throws IOException {
+        // Con dropWhenFull pueden faltar frames: el paso 2 no se escribió y se retoma desde el checkpoint del 3
+        Params p = params(5, 0);
+        p.setBinaryOutput(true);
+        Path dir = Files.createDirectories(Path.of(outDir, "dropped"));
+        int n = 300;
+        ArrayParticleStore particles = new ArrayParticleStore(n);
+        try (BinaryTrajectoryWriter w = new BinaryTrajectoryWriter(dir, p)) {
+            for (int t : new int[]{0, 1, 3, 4}) w.writeStep(t, particles);
+        }
+        try (BinaryTrajectoryWriter w = new BinaryTrajectoryWriter(dir, p, 3)) {
+            w.writeStep(4, particles);
+            w.writeStep(5, particles);
+        }
+
+        // Se descarta solo el frame posterior al checkpoint, sin huecos en el archivo
+        try (TrajectoryReader reader = new TrajectoryReader(dir.resolve(BinaryTrajectoryWriter.FILE_NAME))) {
+            assertEquals(5, reader.frames());
+            double[] x = new double[n], y = new double[n], vx = new double[n], vy = new double[n];
+            int[] expected = {0, 1, 3, 4, 5};
+            for (int k = 0; k < expected.length; k++) assertEquals(expected[k], reader.readFrame(k, x, y, vx, vy));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package Tests;
+
+import Models.Boundary;
+import Models.DistanceKernel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DistanceKernelTest {
+
+    @Test
+    public void testVectorMatchesScalar() {
+        DistanceKernel scalar = DistanceKernel.scalar();
+        DistanceKernel best = DistanceKernel.best();
+        System.out.println("Kernel de distancias: " + best.getClass().getSimpleName());
+
+        Random rand = new Random(5);
+        double L = 10.0, r2 = 1.0;
+        int n = 1000;
+        double[] xs = new double[n], ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = rand.nextDouble() * L;
+            ys[i] = rand.nextDouble() * L;
+        }
+        // Casos borde: justo en r, a través del borde periódico y a distancia L/2
+        xs[0] = 0.0; ys[0] = 0.0;
+        xs[1] = 1.0; ys[1] = 0.0;
+        xs[2] = L - 0.5; ys[2] = 0.5;
+        xs[3] = L / 2; ys[3] = L / 2;
+
+        int[] hits1 = new int[n], hits2 = new int[n];
+        for (int i = 0; i < n; i++) {
+            // bloques de distinto largo y alineación para pasar por la cola escalar
+            int from = i % 7, to = n - i % 13;
+            int found1 = scalar.findHits(xs[i], ys[i], xs, ys, from, to, L, L, r2, hits1);
+            int found2 = best.findHits(xs[i], ys[i], xs, ys, from, to, L, L, r2, hits2);
+            assertArrayEquals(Arrays.copyOf(hits1, found1), Arrays.copyOf(hits2, found2), "Partícula " + i);
+        }
+
+        int found = scalar.findHits(xs[0], ys[0], xs, ys, 0, 4, L, L, r2, hits1);
+        assertArrayEquals(new int[]{0, 1, 2}, Arrays.copyOf(hits1, found));
+
+        // Sin bordes periódicos el par a través del borde ya no está cerca
+        DistanceKernel open = DistanceKernel.scalar(Boundary.REFLECTING);
+        DistanceKernel openBest = DistanceKernel.best(Boundary.REFLECTING);
+        for (int i = 0; i < n; i++) {
+            int from = i % 7, to = n - i % 13;
+            int found1 = open.findHits(xs[i], ys[i], xs, ys, from, to, L, L, r2, hits1);
+            int found2 = openBest.findHits(xs[i], ys[i], xs, ys, from, to, L, L, r2, hits2);
+            assertArrayEquals(Arrays.copyOf(hits1, found1), Arrays.copyOf(hits2, found2), "Partícula " + i);
+        }
+        found = open.findHits(xs[0], ys[0], xs, ys, 0, 4, L, L, r2, hits1);
+        assertArrayEquals(new int[]{0, 1}, Arrays.copyOf(hits1, found));
+    }
+}
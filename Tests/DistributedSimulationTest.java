@@ -0,0 +1,103 @@
+package Tests;
+
+import Models.BinaryTrajectoryWriter;
+import Models.DistributedSimulation;
+import Models.Params;
+import Models.PolarizationObservable;
+import Models.Simulation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DistributedSimulationTest {
+
+    private final String outDir = "outputs/distributed";
+    private final int steps = 100;
+
+    private Params params() {
+        Params p = new Params(0.5, 0.03, 10.0, 300, outDir, steps);
+        p.setSeed(9);
+        p.setCounterRng(true);
+        p.setSaveEvery(10);
+        return p;
+    }
+
+    @Test
+    public void testSlabsMatchSingleProcess() throws IOException {
+        Simulation single = new Simulation(params());
+        single.runCIM();
+
+        // 1 franja, 3 franjas y una por fila de celdas (M = 10): el halo y la migración no cambian nada
+        for (int workers : new int[]{1, 3, 10}) {
+            DistributedSimulation distributed = new DistributedSimulation(params(), workers);
+            distributed.runCIM();
+
+            for (int t = 0; t <= steps; t += 10) {
+                Path step = Path.of("steps", String.format("step_%04d.csv", t));
+                assertEquals(Files.readAllLines(single.getSimDir().resolve(step)),
+                        Files.readAllLines(distributed.getSimDir().resolve(step)), workers + " franjas, paso " + t);
+            }
+
+            // v_a se suma por franjas: puede diferir en el último bit pero no en los 6 decimales del csv
+            List<String> expected = Files.readAllLines(single.getSimDir().resolve(PolarizationObservable.FILE_NAME));
+            List<String> actual = Files.readAllLines(distributed.getSimDir().resolve(PolarizationObservable.FILE_NAME));
+            assertEquals(expected.size(), actual.size());
+            for (int i = 1; i < expected.size(); i++) {
+                assertEquals(Double.parseDouble(expected.get(i).split(",")[1]), Double.parseDouble(actual.get(i).split(",")[1]), 2e-6,
+                        workers + " franjas, fila " + i);
+            }
+        }
+    }
+
+    // N = 500000: el cuadro de N (~26 MB) no entra en 16 MB, ni en los workers ni en el coordinador
+    private static Params largeParams() {
+        Params p = new Params(0.5, 0.03, 200.0, 500_000, "outputs/distributed", 2);
+        p.setSeed(9);
+        p.setCounterRng(true);
+        p.setBinaryOutput(true);
+        p.setSaveEvery(1);
+        p.setWritePolarization(false);
+        return p;
+    }
+
+    // Coordinador de testWorkersFitInSlabHeap en su propia JVM: imprime el directorio de la corrida
+    public static void main(String[] args) throws IOException {
+        DistributedSimulation distributed = new DistributedSimulation(largeParams(), 20);
+        distributed.setWorkerOptions("-Xmx16m");
+        distributed.runCIM();
+        System.out.println(distributed.getSimDir());
+    }
+
+    @Test
+    public void testWorkersFitInSlabHeap() throws IOException, InterruptedException {
+        // Con 20 franjas de 10 filas (+2 fantasma) cada worker guarda ~30000 partículas y el coordinador escribe
+        // cada paso mezclando los sockets: todos los procesos corren con -Xmx16m y guardando la trayectoria
+        Simulation single = new Simulation(largeParams());
+        single.runCIM();
+
+        List<String> command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(), "-Xmx16m"));
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) command.addAll(List.of("--add-modules", "jdk.incubator.vector"));
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), DistributedSimulationTest.class.getName()));
+        Process coordinator = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        List<String> out = new String(coordinator.getInputStream().readAllBytes()).lines().toList();
+        assertEquals(0, coordinator.waitFor(), "el coordinador terminó con error");
+
+        Path distributed = Path.of(out.get(out.size() - 1));
+        assertArrayEquals(Files.readAllBytes(single.getSimDir().resolve(BinaryTrajectoryWriter.FILE_NAME)),
+                Files.readAllBytes(distributed.resolve(BinaryTrajectoryWriter.FILE_NAME)));
+    }
+
+    @Test
+    public void testRequiresCounterRng() {
+        Params p = params();
+        p.setCounterRng(false);
+        assertThrows(IllegalArgumentException.class, () -> new DistributedSimulation(p, 2));
+        assertThrows(IllegalArgumentException.class, () -> new DistributedSimulation(params(), 11));
+    }
+}
@@ -0,0 +1,56 @@
+package Tests;
+
+import Models.ArrayParticleStore;
+import Models.ObjectParticleStore;
+import Models.Params;
+import Models.ParticleStore;
+import Models.Simulation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ParticleStoreBenchmark {
+
+    private final int steps = 50;
+    private final double density = 5.0;
+
+    // Corre runCIM con el layout dado y devuelve el último paso escrito
+    private List<String> runCIM(int n, IntFunction<ParticleStore> layout, String name) throws IOException {
+        double l = Math.sqrt(n / density);
+        String outDir = "outputs/benchmark/" + name + "_N" + n;
+        Params p = new Params(0.1, 0.03, l, n, outDir, steps);
+        p.setSeed(20);
+        p.setSaveEvery(steps);      // solo se escriben el paso 0 y el último
+
+        Simulation sim = new Simulation(p, layout.apply(n));
+        long start = System.nanoTime();
+        sim.runCIM();
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println(name + " N=" + n + ": " + duration + " ms");
+
+        Path last = sim.getSimDir().resolve("steps").resolve(String.format("step_%04d.csv", steps));
+        return Files.readAllLines(last);
+    }
+
+    @Test
+    public void compareLayouts() throws IOException {
+        int[] N = {1000, 5000, 10000};
+        for (int n : N) {
+            // Una pasada de calentamiento para que el JIT compile ambos caminos
+            runCIM(n, ObjectParticleStore::new, "warmup_object");
+            runCIM(n, ArrayParticleStore::new, "warmup_array");
+
+            List<String> objects = runCIM(n, ObjectParticleStore::new, "object");
+            List<String> arrays = runCIM(n, ArrayParticleStore::new, "array");
+
+            assertEquals(objects, arrays, "N=" + n + " - Los layouts producen salidas distintas");
+        }
+    }
+}
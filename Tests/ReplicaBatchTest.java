@@ -0,0 +1,55 @@
+package Tests;
+
+import Models.Params;
+import Models.PolarizationObservable;
+import Models.ReplicaBatch;
+import Models.Simulation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicaBatchTest {
+
+    private final String outDir = "outputs/replicas";
+
+    private Params params() {
+        Params p = new Params(0.5, 0.03, 10.0, 300, outDir, 200);
+        p.setSeed(11);
+        p.setWriteTrajectory(false);
+        p.setThreads(3);
+        return p;
+    }
+
+    @Test
+    public void testReplicasMatchIndependentRuns() throws IOException {
+        ReplicaBatch batch = new ReplicaBatch(params(), 3, 100);
+        batch.run("FVM");
+        List<Path> dirs = batch.getSimDirs();
+
+        // Cada réplica debe ser la misma corrida que una Simulation suelta con su semilla
+        for (int r = 0; r < dirs.size(); r++) {
+            Params p = params();
+            p.setSeed(11 + r);
+            p.setThreads(1);
+            Simulation sim = new Simulation(p);
+            sim.runRandomNeighborsCIM();
+
+            assertEquals(Files.readAllLines(sim.getSimDir().resolve(PolarizationObservable.FILE_NAME)),
+                    Files.readAllLines(dirs.get(r).resolve(PolarizationObservable.FILE_NAME)), "Réplica " + r);
+        }
+
+        double[] means = batch.getReplicaMeans();
+        double mean = (means[0] + means[1] + means[2]) / 3;
+        assertEquals(mean, batch.getMean(), 1e-12);
+        assertTrue(batch.getStandardError() > 0);
+
+        List<String> ensemble = Files.readAllLines(Path.of(outDir, ReplicaBatch.FILE_NAME));
+        assertEquals(202, ensemble.size());     // cabecera + pasos 0..200
+        assertTrue(ensemble.get(201).startsWith("200,3,"));
+    }
+}
@@ -2,10 +2,12 @@ package Tests;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import org.junit.jupiter.api.Test;
 import Models.Params;
 import Models.SimulationMain;
+import Models.TrajectoryRenderer;
 
 import java.util.concurrent.TimeUnit;
 
@@ -22,7 +24,7 @@ public class RunFVMSimulations {
                 //  p.setSeed(20);
 
                 Path simDir = SimulationMain.runSimpleSimulationUsingOneRandomNeighbor(p);
-                PythonVisualize.animate_vectors(outDir,simDir.getFileName().toString());
+                TrajectoryRenderer.animate(simDir);
         }
 
 
@@ -43,6 +45,24 @@ public class RunFVMSimulations {
                 PythonVisualize.animate_vectors_n_simulations();
         }
 
+        @Test
+        public void testReplicaBatches() throws IOException {
+                // Mismo barrido que testMultipleSimulations, con las 10 réplicas de cada eta avanzadas a la par
+                double[] eta_values = {0.0, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.0};
+                Double l = 10.0;
+                int n = 500, n_runs = 10, steps = 2000, transient_steps = 1000;
+                long startTime = System.nanoTime();
+                for (double eta : eta_values) {
+                        String outDir = "outputs/eta" + eta + "_v" + v + "_d" + n/(l*l);
+                        Params p = new Params(eta, v, l, n, outDir, steps);
+                        p.setWriteTrajectory(false);
+                        p.setThreads(0);
+                        SimulationMain.runReplicaBatch(p, n_runs, transient_steps, true);
+                }
+                long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                System.out.println("Execution Time: " + duration + " ms");
+        }
+
         @Test
         public void animateMultipleSimulations() throws IOException, InterruptedException {
                 System.out.println("Starting animations");
@@ -57,7 +77,7 @@ public class RunFVMSimulations {
                 String outDir = "outputs/eta" + eta + "_v" + v + "_d" + n/(l*l);
                 String simDirName = "sim_1756403667_146" + ".csv";
 
-                PythonVisualize.animate_vectors(outDir,simDirName);
+                TrajectoryRenderer.animate(Paths.get(outDir, "sims", simDirName));
         }
 
 
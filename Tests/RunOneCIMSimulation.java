@@ -2,6 +2,7 @@ package Tests;
 
 import Models.Params;
 import Models.SimulationMain;
+import Models.TrajectoryRenderer;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
@@ -24,6 +25,6 @@ public class RunOneCIMSimulation {
         long durationBF = TimeUnit.NANOSECONDS.toMillis(endTimeBF - startTimeBF);
         System.out.println("Execution Time: " + durationBF + " ms");
 
-        PythonVisualize.animate_vectors(outDir,simDir.getFileName().toString());
+        TrajectoryRenderer.animate(simDir);
     }
 }
@@ -4,8 +4,12 @@ import java.io.IOException;
 import java.nio.file.Path;
 
 import org.junit.jupiter.api.Test;
+import Models.BinaryTrajectoryWriter;
+import Models.Boundary;
 import Models.Params;
+import Models.Simulation;
 import Models.SimulationMain;
+import Models.TrajectoryReader;
 
 import static org.junit.jupiter.api.Assertions.*;
 import java.io.*;
@@ -59,11 +63,199 @@ public class SimulationMethodsComparisonTest {
         compareWithSpecificSeed();
     }
 
+    @Test
+    public void testCellCountValidation() throws IOException {
+        // Caja chica (L/r = 2): se usa una sola celda y CIM debe seguir coincidiendo con fuerza bruta
+        Params small = new Params(0.1, 0.03, 2.0, 40, outDir, 200);
+        small.setSeed(3);
+        assertEquals(1, small.cellsX());
+        assertEquals(1, small.cellsY());
+        String dirBrute = SimulationMain.runSimpleSimulation(small,true).toString();
+        String dirCIM = SimulationMain.runSimpleSimulation(small,false).toString();
+        compareLastSteps(dirBrute, dirCIM);
+
+        p.setM(11);     // L/M < r
+        assertThrows(IllegalArgumentException.class, p::cellsX);
+        assertThrows(IllegalArgumentException.class, p::cellsY);
+        p.setM(0);
+        assertEquals(10, p.cellsX());
+        assertEquals(10, p.cellsY());
+    }
+
+    @Test
+    public void testVerletVsCIM() throws IOException {
+        // Con skin chico la lista se reconstruye varias veces en la corrida
+        p.setSeed(2);
+        Simulation cim = new Simulation(new Params(p));
+        cim.runCIM();
+        p.setVerletSkin(0.3);
+        Simulation verlet = new Simulation(new Params(p));
+        verlet.runCIM();
+        p.setVerletSkin(0);
+
+        assertTrue(verlet.getVerletRebuilds() > 1, "La lista no se reconstruyó");
+        assertTrue(verlet.getVerletRebuilds() < p.getSteps() / 2, "La lista se reconstruye casi en cada paso");
+        // Mismos pares dentro de r en toda la corrida: mismos conjuntos de vecinos
+        assertEquals(cim.getPairsAccepted(), verlet.getPairsAccepted());
+        compareLastSteps(cim.getSimDir().toString(), verlet.getSimDir().toString());
+    }
+
+    @Test
+    public void testUnitHeadingVsAngle() throws IOException {
+        // Misma dinámica sin atan2: solo difiere el redondeo
+        p.setSeed(2);
+        String dirAngle = SimulationMain.runSimpleSimulation(p,false).toString();
+        String dirBruteAngle = SimulationMain.runSimpleSimulation(p,true).toString();
+        p.setUnitHeading(true);
+        String dirUnit = SimulationMain.runSimpleSimulation(p,false).toString();
+        String dirBruteUnit = SimulationMain.runSimpleSimulation(p,true).toString();
+        p.setUnitHeading(false);
+
+        compareLastSteps(dirAngle, dirUnit);
+        compareLastSteps(dirBruteAngle, dirBruteUnit);
+    }
+
+    @Test
+    public void testMortonReorderKeepsIds() throws IOException {
+        // Con counterRng el ruido va por id externo: reordenar solo cambia el orden de las sumas
+        p.setSeed(2);
+        p.setCounterRng(true);
+        String dirPlain = SimulationMain.runSimpleSimulation(p,false).toString();
+        p.setReorderEvery(10);
+        String dirReordered = SimulationMain.runSimpleSimulation(p,false).toString();
+        p.setReorderEvery(0);
+        p.setCounterRng(false);
+
+        compareLastSteps(dirPlain, dirReordered);
+    }
+
+    @Test
+    public void testSerialVsParallelCIM() throws IOException {
+        p.setSeed(2);
+        String dirSerial = SimulationMain.runSimpleSimulation(p,false).toString();
+        p.setThreads(4);
+        String dirParallel = SimulationMain.runSimpleSimulation(p,false).toString();
+        p.setThreads(1);
+
+        compareLastSteps(dirSerial, dirParallel);
+    }
+
+    @Test
+    public void testCounterRngIsThreadIndependent() throws IOException {
+        p.setSeed(2);
+        p.setCounterRng(true);
+        int[] threads = {1, 4, 7};
+
+        List<Path> cimDirs = new ArrayList<>();
+        List<Path> fvmDirs = new ArrayList<>();
+        for (int t : threads) {
+            p.setThreads(t);
+            cimDirs.add(SimulationMain.runSimpleSimulation(p,false));
+            fvmDirs.add(SimulationMain.runSimpleSimulationUsingOneRandomNeighbor(p));
+        }
+        p.setThreads(1);
+        p.setCounterRng(false);
+
+        for (int i = 1; i < threads.length; i++) {
+            assertIdenticalSteps(cimDirs.get(0), cimDirs.get(i), "CIM threads=" + threads[i]);
+            assertIdenticalSteps(fvmDirs.get(0), fvmDirs.get(i), "FVM threads=" + threads[i]);
+        }
+    }
+
+    @Test
+    public void testBoundaryModesVsBruteForce() throws IOException {
+        p.setSeed(2);
+        for (Boundary boundary : new Boundary[]{Boundary.REFLECTING, Boundary.OPEN}) {
+            p.setBoundary(boundary);
+            compareWithSpecificSeed();
+            p.setThreads(4);
+            String dirParallel = SimulationMain.runSimpleSimulation(p,false).toString();
+            p.setThreads(1);
+            p.setVerletSkin(0.3);
+            String dirVerlet = SimulationMain.runSimpleSimulation(p,false).toString();
+            p.setVerletSkin(0);
+            String dirBrute = SimulationMain.runSimpleSimulation(p,true).toString();
+            compareLastSteps(dirBrute, dirParallel);
+            compareLastSteps(dirBrute, dirVerlet);
+
+            // Sin toro M = 2 no repite celdas
+            Params two = new Params(p);
+            two.setM(2);
+            assertEquals(2, two.cellsX());
+            compareLastSteps(dirBrute, SimulationMain.runSimpleSimulation(two,false).toString());
+        }
+
+        // Con paredes nadie sale de la caja, también en el camino por vectores unitarios
+        p.setBoundary(Boundary.REFLECTING);
+        for (boolean unit : new boolean[]{false, true}) {
+            p.setUnitHeading(unit);
+            Simulation sim = new Simulation(new Params(p));
+            sim.addObservable((t, particles) -> {
+                for (int i = 0; i < particles.size(); i++) {
+                    assertTrue(particles.getX(i) >= 0 && particles.getX(i) <= 10.0
+                            && particles.getY(i) >= 0 && particles.getY(i) <= 10.0, "Partícula " + i + " fuera de la caja en t = " + t);
+                }
+            });
+            sim.runCIM();
+        }
+        p.setUnitHeading(false);
+        p.setBoundary(Boundary.PERIODIC);
+    }
+
+    @Test
+    public void testRectangularBoxVsBruteForce() throws IOException {
+        // Canal 40 x 5: la grilla es de 40 x 5 celdas, no de 40 x 40
+        Params channel = new Params(0.1, 0.03, null, 200, outDir, 300);
+        channel.setBox(40.0, 5.0);
+        channel.setSeed(6);
+        assertEquals(40, channel.cellsX());
+        assertEquals(5, channel.cellsY());
+
+        for (Boundary boundary : Boundary.values()) {
+            channel.setBoundary(boundary);
+            String dirBrute = SimulationMain.runSimpleSimulation(channel,true).toString();
+            compareLastSteps(dirBrute, SimulationMain.runSimpleSimulation(channel,false).toString());
+            channel.setThreads(4);
+            compareLastSteps(dirBrute, SimulationMain.runSimpleSimulation(channel,false).toString());
+            channel.setThreads(1);
+            channel.setVerletSkin(0.3);
+            compareLastSteps(dirBrute, SimulationMain.runSimpleSimulation(channel,false).toString());
+            channel.setVerletSkin(0);
+        }
+
+        // La cabecera binaria guarda los dos lados
+        channel.setBoundary(Boundary.PERIODIC);
+        channel.setBinaryOutput(true);
+        Simulation sim = new Simulation(channel);
+        sim.runCIM();
+        try (TrajectoryReader reader = new TrajectoryReader(sim.getSimDir().resolve(BinaryTrajectoryWriter.FILE_NAME))) {
+            assertEquals(40.0, reader.Lx);
+            assertEquals(5.0, reader.Ly);
+            assertEquals(40, reader.Mx);
+            assertEquals(5, reader.My);
+        }
+    }
+
+    // Todos los pasos escritos deben coincidir byte a byte
+    private void assertIdenticalSteps(Path dir1, Path dir2, String label) throws IOException {
+        try (Stream<Path> files = Files.list(dir1.resolve("steps"))) {
+            for (Path f1 : files.sorted().collect(Collectors.toList())) {
+                Path f2 = dir2.resolve("steps").resolve(f1.getFileName());
+                assertEquals(Files.readAllLines(f1), Files.readAllLines(f2),
+                        "seed " + p.getSeed() + " - " + label + " - Diferencia en " + f1.getFileName());
+            }
+        }
+    }
+
     private void compareWithSpecificSeed() throws IOException {
 
         String dirBrute = SimulationMain.runSimpleSimulation(p,true).toString();
         String dirCIM = SimulationMain.runSimpleSimulation(p,false).toString();
 
+        compareLastSteps(dirBrute, dirCIM);
+    }
+
+    private void compareLastSteps(String dirBrute, String dirCIM) throws IOException {
 
         Path lastBrute = getLastStepFile(dirCIM + "/steps");
         Path lastCIM = getLastStepFile(dirBrute + "/steps");
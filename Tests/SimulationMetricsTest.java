@@ -0,0 +1,94 @@
+package Tests;
+
+import Models.Params;
+import Models.Simulation;
+import Models.SimulationMetrics;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulationMetricsTest {
+
+    private final String outDir = "outputs/metrics";
+
+    private Params params(int steps) {
+        Params p = new Params(0.5, 0.03, 10.0, 300, outDir, steps);
+        p.setSeed(3);
+        p.setSaveEvery(10);
+        return p;
+    }
+
+    @Test
+    public void testMBeanAndTotals() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Simulation sim = new Simulation(params(200));
+        ObjectName name = new ObjectName("Models:type=Simulation,name=" + ObjectName.quote(sim.getSimDir().getFileName().toString()));
+
+        // Se consulta el MBean durante la corrida, desde un observable (observe(t) corre antes de cerrar el paso t)
+        long[] seen = new long[2];
+        sim.addObservable((t, particles) -> {
+            if (t != 100) return;
+            try {
+                seen[0] = ((Number) server.getAttribute(name, "Step")).longValue();
+                seen[1] = ((Number) server.getAttribute(name, "PairsTested")).longValue();
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        });
+        sim.runCIM();
+
+        assertEquals(99, seen[0]);
+        assertTrue(seen[1] > 0);
+        assertFalse(server.isRegistered(name), "El MBean se da de baja al terminar");
+
+        SimulationMetrics metrics = sim.getMetrics();
+        assertEquals(200, metrics.getStep());
+        assertEquals(sim.getPairsTested(), metrics.getPairsTested());
+        assertTrue(metrics.getGridNanos() > 0 && metrics.getSearchNanos() > 0 && metrics.getUpdateNanos() > 0 && metrics.getWriteNanos() > 0);
+        assertEquals(sim.getPolarization().getLast(), metrics.getPolarization());
+
+        long bytes;
+        try (Stream<Path> files = Files.list(sim.getSimDir().resolve("steps"))) {
+            bytes = files.mapToLong(f -> f.toFile().length()).sum();
+        }
+        assertEquals(bytes, metrics.getBytesWritten());
+    }
+
+    @Test
+    public void testFlightRecorderEvents() throws IOException {
+        Path file = Files.createTempFile("metrics", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("Models.SimulationStep");
+            recording.start();
+            Params p = params(50);
+            p.setWriteTrajectory(false);
+            new Simulation(p).runRandomNeighborsCIM();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        assertEquals(50, events.size());
+        Set<Integer> steps = new TreeSet<>();
+        for (RecordedEvent e : events) {
+            steps.add(e.getInt("step"));
+            assertTrue(e.getLong("pairsTested") > 0);
+        }
+        assertEquals(50, steps.size());
+    }
+}
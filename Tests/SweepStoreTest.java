@@ -0,0 +1,174 @@
+package Tests;
+
+import Models.Params;
+import Models.SweepExecutor;
+import Models.SweepStore;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SweepStoreTest {
+
+    private final String outDir = "outputs/sweepstore";
+    private final Path log = Path.of(outDir, SweepStore.FILE_NAME);
+
+    private List<SweepExecutor.Job> jobs() {
+        List<SweepExecutor.Job> jobs = new ArrayList<>();
+        for (double eta : new double[]{0.5, 2.0}) {
+            Params p = new Params(eta, 0.03, 5.0, 100, outDir, 60);
+            p.setWriteTrajectory(false);
+            for (int run = 0; run < 2; run++) {
+                Params q = new Params(p);
+                q.setSeed(SweepStore.seed(p, "CIM", run));
+                jobs.add(new SweepExecutor.Job(q, run, false));
+            }
+        }
+        return jobs;
+    }
+
+    private long sims() throws IOException {
+        try (Stream<Path> dirs = Files.list(Path.of(outDir, "sims"))) {
+            return dirs.count();
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path f : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(f);
+        }
+    }
+
+    @Test
+    public void testResumeSkipsFinishedRuns() throws IOException {
+        deleteTree(Path.of(outDir));
+
+        try (SweepStore store = new SweepStore(log)) {
+            new SweepExecutor(2, store, 30).run(jobs());
+            assertEquals(4, store.size());
+        }
+        assertEquals(4, sims());
+
+        // Relanzar el barrido no corre nada ni duplica resultados
+        try (SweepStore store = new SweepStore(log)) {
+            new SweepExecutor(2, store, 30).run(jobs());
+            assertEquals(4, store.size());
+
+            // El promedio de una corrida es el de su polarization.csv desde el paso 30
+            SweepStore.Result result = store.getResults().get(0);
+            List<String> lines = Files.readAllLines(Path.of(result.simDir, "polarization.csv"));
+            double sum = 0.0;
+            for (int t = 30; t <= 60; t++) sum += Double.parseDouble(lines.get(t + 1).split(",")[1]);
+            assertEquals(31, result.count);
+            assertEquals(sum / 31, result.vaMean, 1e-5);
+
+            // ⟨v_a⟩ ± σ entre las dos semillas de eta = 2.0
+            Params p = new Params(2.0, 0.03, 5.0, 100, outDir, 60);
+            SweepStore.Summary summary = store.summary(p, "CIM", 30);
+            assertEquals(2, summary.runs);
+            double a = 0.0, b = 0.0;
+            for (SweepStore.Result r : store.getResults()) {
+                if (r.eta != 2.0) continue;
+                if (a == 0.0) a = r.vaMean; else b = r.vaMean;
+            }
+            assertEquals((a + b) / 2, summary.mean, 1e-12);
+            assertEquals(Math.abs(a - b) / Math.sqrt(2), summary.std, 1e-12);
+            assertEquals(2, store.summaries().size());
+        }
+        assertEquals(4, sims());
+
+        // Otro transitorio es otra medición: vuelve a correr todo
+        try (SweepStore store = new SweepStore(log)) {
+            new SweepExecutor(2, store, 40).run(jobs().subList(0, 1));
+            assertEquals(5, store.size());
+        }
+        assertEquals(5, sims());
+    }
+
+    @Test
+    public void testTornTailIsDropped() throws IOException {
+        Path file = Path.of(outDir, "torn", SweepStore.FILE_NAME);
+        deleteTree(file.getParent());
+
+        Params p = new Params(0.5, 0.03, 5.0, 100, outDir, 60);
+        p.setSeed(3);
+        Path simDir = Path.of(outDir, "sims", "none");
+        try (SweepStore store = new SweepStore(file)) {
+            store.record(p, "FVM", 10, 51, 0.4, 0.01, simDir);
+        }
+        long size = Files.size(file);
+
+        // Registro a medio escribir al final: se descarta y el siguiente se agrega donde terminaba el último completo
+        try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.APPEND)) {
+            out.write(new byte[]{0, 0, 0, 80, 1, 2, 3});
+        }
+        try (SweepStore store = new SweepStore(file)) {
+            assertEquals(1, store.size());
+            assertEquals(size, Files.size(file));
+            p.setSeed(4);
+            store.record(p, "FVM", 10, 51, 0.6, 0.01, simDir);
+        }
+        try (SweepStore store = new SweepStore(file)) {
+            assertEquals(2, store.size());
+            assertTrue(store.contains(p, "FVM", 10));
+            assertFalse(store.contains(p, "CIM", 10));
+            assertEquals(0.5, store.summary(p, "FVM", 10).mean, 1e-12);
+        }
+    }
+
+    @Test
+    public void testDynamicsOptionsAreDistinctRuns() throws IOException {
+        Path file = Path.of(outDir, "options", SweepStore.FILE_NAME);
+        deleteTree(file.getParent());
+
+        // Misma tupla visible y misma semilla; solo cambia el rng (o el heading): son corridas distintas
+        Params random = new Params(0.5, 0.03, 5.0, 100, outDir, 40);
+        random.setSeed(7);
+        random.setWriteTrajectory(false);
+        Params counter = new Params(random);
+        counter.setCounterRng(true);
+        Params unit = new Params(random);
+        unit.setUnitHeading(true);
+        assertNotEquals(SweepStore.parameters(random, "CIM"), SweepStore.parameters(counter, "CIM"));
+        assertNotEquals(SweepStore.parameters(random, "KNN"), SweepStore.parameters(random, "CIM"));
+
+        // Las opciones que solo cambian la salida no
+        Params binary = new Params(random);
+        binary.setBinaryOutput(true);
+        binary.setSaveEvery(5);
+        assertEquals(SweepStore.parameters(random, "CIM"), SweepStore.parameters(binary, "CIM"));
+
+        try (SweepStore store = new SweepStore(file)) {
+            new SweepExecutor(2, store, 20).run(List.of(
+                    new SweepExecutor.Job(random, 0, "CIM"),
+                    new SweepExecutor.Job(counter, 0, "CIM"),
+                    new SweepExecutor.Job(unit, 0, "CIM"),
+                    new SweepExecutor.Job(new Params(random), 0, "KNN")));
+            assertEquals(4, store.size());
+            assertTrue(store.contains(random, "CIM", 20));
+            assertTrue(store.contains(counter, "CIM", 20));
+            assertTrue(store.contains(random, "KNN", 20));
+            assertFalse(store.contains(binary, "FVM", 20));
+            assertTrue(store.contains(binary, "CIM", 20));
+        }
+    }
+
+    @Test
+    public void testSameSeedSameRun() {
+        // La semilla depende solo de los parámetros y del número de corrida
+        Params p = new Params(0.5, 0.03, 5.0, 100, outDir, 60);
+        assertEquals(SweepStore.seed(new Params(p), "CIM", 1), SweepStore.seed(p, "CIM", 1));
+        assertNotEquals(SweepStore.seed(p, "CIM", 0), SweepStore.seed(p, "CIM", 1));
+        assertNotEquals(SweepStore.seed(new Params(1.0, 0.03, 5.0, 100, outDir, 60), "CIM", 0), SweepStore.seed(p, "CIM", 0));
+    }
+}
@@ -0,0 +1,96 @@
+package Tests;
+
+import Models.ArrayParticleStore;
+import Models.Boundary;
+import Models.Params;
+import Models.Simulation;
+import Models.TopologicalSearch;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopologicalSearchTest {
+
+    private final String outDir = "outputs/topological";
+
+    // Oráculo: las k más cercanas ordenando todas las distancias
+    private static int[] bruteForce(double[] x, double[] y, int i, int k, double Lx, double Ly, boolean periodic) {
+        double[] d2 = new double[x.length];
+        for (int j = 0; j < x.length; j++) {
+            double dx = Math.abs(x[j] - x[i]), dy = Math.abs(y[j] - y[i]);
+            if (periodic) {
+                dx = Math.min(dx, Lx - dx);
+                dy = Math.min(dy, Ly - dy);
+            }
+            d2[j] = dx*dx + dy*dy;
+        }
+        return IntStream.range(0, x.length).filter(j -> j != i).boxed()
+                .sorted(Comparator.comparingDouble((Integer j) -> d2[j]).thenComparingInt(j -> j))
+                .limit(k).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void checkAgainstBruteForce(Params p, int n, double Lx, double Ly, int k, boolean periodic, long seed) {
+        Random rand = new Random(seed);
+        ArrayParticleStore store = new ArrayParticleStore(n);
+        double[] x = new double[n], y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = rand.nextDouble() * Lx;
+            y[i] = rand.nextDouble() * Ly;
+            store.setX(i, x[i]);
+            store.setY(i, y[i]);
+            store.setTheta(i, 0.0);
+        }
+
+        TopologicalSearch search = new TopologicalSearch(p);
+        search.build(store);
+        int[] neighbors = new int[search.getK()];
+        for (int i = 0; i < n; i++) {
+            search.find(store, i, neighbors);
+            assertArrayEquals(bruteForce(x, y, i, k, Lx, Ly, periodic), neighbors,
+                    p.getSeed() + " - " + Lx + "x" + Ly + " k=" + k + " - partícula " + i);
+        }
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        int[][] cases = {{1, 500}, {7, 500}, {30, 500}, {19, 20}, {50, 20}};
+        for (Boundary boundary : Boundary.values()) {
+            for (int[] c : cases) {
+                int k = c[0], n = c[1];
+                Params p = new Params(0.1, 0.03, 10.0, n, outDir);
+                p.setBoundary(boundary);
+                p.setTopologicalK(k);
+                checkAgainstBruteForce(p, n, 10.0, 10.0, Math.min(k, n - 1), boundary.periodic(), 11);
+
+                // Caja rectangular, grilla de varias celdas en x y una sola fila
+                p.setBox(40.0, 1.0);
+                checkAgainstBruteForce(p, n, 40.0, 1.0, Math.min(k, n - 1), boundary.periodic(), 12);
+            }
+        }
+    }
+
+    @Test
+    public void testSerialMatchesParallel() throws IOException {
+        Params p = new Params(0.5, 0.03, 10.0, 400, outDir, 100);
+        p.setSeed(8);
+        p.setSaveEvery(100);
+        Simulation serial = new Simulation(new Params(p));
+        serial.runTopological();
+        p.setThreads(4);
+        Simulation parallel = new Simulation(new Params(p));
+        parallel.runTopological();
+
+        Path last = Path.of("steps", "step_0100.csv");
+        assertEquals(Files.readAllLines(serial.getSimDir().resolve(last)), Files.readAllLines(parallel.getSimDir().resolve(last)));
+        assertEquals(100L * 400 * 7, serial.getPairsAccepted());
+        assertTrue(serial.getPairsTested() < 100L * 400 * 399 / 10, "La búsqueda recorre casi todas las partículas");
+        assertTrue(serial.getPolarization().getLast() > 0 && serial.getPolarization().getLast() <= 1);
+    }
+}
@@ -0,0 +1,110 @@
+package Tests;
+
+import Models.ArrayParticleStore;
+import Models.FrameRenderObservable;
+import Models.Params;
+import Models.Simulation;
+import Models.TrajectoryRenderer;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrajectoryRendererTest {
+
+    private final String outDir = "outputs/render";
+
+    private Params params(boolean binary) {
+        Params p = new Params(0.5, 0.03, 10.0, 200, outDir, 40);
+        p.setSeed(4);
+        p.setBinaryOutput(binary);
+        return p;
+    }
+
+    private static int gifFrames(Path gif) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(gif.toFile())) {
+            ImageReader reader = ImageIO.getImageReaders(in).next();
+            reader.setInput(in);
+            return reader.getNumImages(true);
+        }
+    }
+
+    private static long count(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void testGifAndPngFromSavedRuns() throws IOException {
+        Simulation binary = new Simulation(params(true));
+        binary.runCIM();
+        assertEquals(41, TrajectoryRenderer.renderSimulation(binary.getSimDir(), binary.getSimDir().resolve("anim.gif"), true, 1000, 4));
+        assertEquals(41, gifFrames(binary.getSimDir().resolve("anim.gif")));
+
+        // Con más pasos que maxFrames se eligen frames equiespaciados, incluyendo el primero y el último
+        Params p = params(false);
+        p.createCSVFile();
+        Simulation csv = new Simulation(p);
+        csv.runCIM();
+        Path frames = csv.getSimDir().resolve("frames");
+        assertEquals(11, TrajectoryRenderer.renderSimulation(csv.getSimDir(), frames, false, 11, 2));
+        assertTrue(Files.exists(frames.resolve("frame_0000.png")));
+        assertTrue(Files.exists(frames.resolve("frame_0040.png")));
+        assertEquals(11, count(frames));
+    }
+
+    @Test
+    public void testStepFilesInNumericOrder() throws IOException {
+        // Desde el paso 10000 los nombres tienen 5 dígitos: el último frame tiene que ser step_12000, no step_8000
+        Params p = new Params(0.5, 0.03, 10.0, 20, outDir, 12000);
+        p.setSeed(4);
+        p.setSaveEvery(2000);
+        p.createCSVFile();
+        Simulation sim = new Simulation(p);
+        sim.runCIM();
+        Path frames = sim.getSimDir().resolve("frames");
+        assertEquals(2, TrajectoryRenderer.renderSimulation(sim.getSimDir(), frames, false, 2, 1));
+        assertTrue(Files.exists(frames.resolve("frame_0000.png")));
+        assertTrue(Files.exists(frames.resolve("frame_12000.png")));
+    }
+
+    @Test
+    public void testArrowColorAndLiveFrames() throws IOException {
+        // Una partícula en el centro apuntando a +x: con color por ángulo la flecha es roja (ángulo 0)
+        TrajectoryRenderer renderer = new TrajectoryRenderer(10.0, 10.0, 200, true);
+        BufferedImage img = renderer.render(0, new double[]{5.0}, new double[]{5.0}, new double[]{0.03}, new double[]{0.0}, 1);
+        Color center = new Color(img.getRGB(44 + 100, 28 + 100));
+        assertEquals(new Color(255, 0, 0), center);
+
+        ArrayParticleStore single = new ArrayParticleStore(1);
+        single.setX(0, 5.0);
+        single.setY(0, 5.0);
+        single.setTheta(0, Math.PI / 2);
+        BufferedImage up = new TrajectoryRenderer(10.0, 10.0, 200, false).render(0, single, 0.03);
+        assertEquals(Color.BLACK, new Color(up.getRGB(44 + 100, 28 + 100 - 1)));
+
+        // Caja rectangular: el lado largo ocupa los píxeles pedidos y el corto en proporción
+        TrajectoryRenderer channel = new TrajectoryRenderer(40.0, 5.0, 400, false);
+        assertEquals(44 + 400 + 12, channel.getWidth());
+        assertEquals(28 + 50 + 34, channel.getHeight());
+
+        // PNG cada 10 pasos desde el store en memoria, sin escribir la trayectoria
+        Params p = params(false);
+        p.setWriteTrajectory(false);
+        Simulation sim = new Simulation(p);
+        Path frames = sim.getSimDir().resolve("frames");
+        sim.addObservable(new FrameRenderObservable(frames, p, 10, true, 2));
+        sim.runRandomNeighborsCIM();
+        assertEquals(5, count(frames));
+    }
+}
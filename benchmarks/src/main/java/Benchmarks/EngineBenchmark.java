@@ -0,0 +1,93 @@
+package Benchmarks;
+
+import Models.Boundary;
+import Models.Params;
+import Models.Simulation;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Costo de un paso de cada motor de vecinos, sin escritura de trayectoria ni observables.
+// Correr con -prof gc para ver la tasa de asignación (gc.alloc.rate.norm = bytes por paso)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class EngineBenchmark {
+
+    // BRUTE_FORCE = runBruteForce, CIM = runCIM, CIM_VERLET = runCIM con listas de Verlet, FVM = runRandomNeighborsCIM,
+    // KNN = runTopological (k = 7)
+    @Param({"BRUTE_FORCE", "CIM", "CIM_VERLET", "FVM", "KNN"})
+    public String engine;
+
+    @Param({"1000", "10000"})
+    public int N;
+
+    // densidad N/L²; L se deriva de N y rho
+    @Param({"1", "4"})
+    public double rho;
+
+    @Param({"1.0"})
+    public double r;
+
+    // false fuerza el kernel de distancias escalar
+    @Param({"true"})
+    public boolean simd;
+
+    // true evoluciona la dirección como vector unitario (sin atan2)
+    @Param({"false"})
+    public boolean unitHeading;
+
+    // celdas por lado; 0 deja que Params elija la mayor con L/M >= r
+    @Param({"0", "5"})
+    public int M;
+
+    // condición de borde; las paredes deberían andar al mismo ritmo que el toro
+    @Param({"PERIODIC"})
+    public Boundary boundary;
+
+    private static final double VERLET_SKIN = 0.3;
+
+    private Simulation sim;
+    private Path outDir;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        double L = Math.sqrt(N / rho);
+
+        outDir = Files.createTempDirectory("vicsek-bench");
+        Params p = new Params(2.0, 0.03, L, N, outDir.toString(), Integer.MAX_VALUE);
+        p.setR(r);
+        p.setM(M);
+        p.setSeed(42);
+        p.setWriteTrajectory(false);
+        p.setWritePolarization(false);
+        p.setVectorDistance(simd);
+        p.setUnitHeading(unitHeading);
+        p.setBoundary(boundary);
+        if (engine.equals("CIM_VERLET")) p.setVerletSkin(VERLET_SKIN);
+
+        sim = new Simulation(p);
+        sim.prepare(engine.equals("CIM_VERLET") ? "CIM" : engine);
+    }
+
+    @Benchmark
+    public void step() {
+        sim.step();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        sim.shutdown();
+        try (Stream<Path> files = Files.walk(outDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+}
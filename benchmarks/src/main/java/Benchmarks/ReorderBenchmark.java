@@ -0,0 +1,62 @@
+package Benchmarks;
+
+import Models.Params;
+import Models.Simulation;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Paso CIM con N grande con y sin reordenar el store por curva de Morton.
+// Para ver los fallos de caché: -prof perfnorm (L1-dcache-load-misses, LLC-load-misses por paso)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Xmx4g"})
+@State(Scope.Thread)
+public class ReorderBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int N;
+
+    @Param({"4"})
+    public double rho;
+
+    // 0 deja el orden de generación (aleatorio en el espacio)
+    @Param({"0", "20"})
+    public int reorderEvery;
+
+    private Simulation sim;
+    private Path outDir;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        outDir = Files.createTempDirectory("vicsek-bench");
+        Params p = new Params(2.0, 0.03, Math.sqrt(N / rho), N, outDir.toString(), Integer.MAX_VALUE);
+        p.setSeed(42);
+        p.setWriteTrajectory(false);
+        p.setWritePolarization(false);
+        p.setReorderEvery(reorderEvery);
+
+        sim = new Simulation(p);
+        sim.prepare("CIM");
+    }
+
+    @Benchmark
+    public void step() {
+        sim.step();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        sim.shutdown();
+        try (Stream<Path> files = Files.walk(outDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+}